@@ -0,0 +1,89 @@
+package Benchmarks;
+
+import Servers.StudentRecord;
+import Servers.TeacherRecord;
+
+import java.lang.reflect.Field;
+
+/**
+ * Microbenchmark of the field mutation done by editRecord.
+ *
+ * Compares the former reflective path (getDeclaredField + setAccessible + Field.set on every call)
+ * with the enum-dispatched setters of Mutable_Fields. Each path is warmed up first so that
+ * the JIT has compiled it before it is measured.
+ *
+ * Usage: java Benchmarks.EditRecordBenchmark [iterations]
+ */
+public class EditRecordBenchmark {
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 5;
+    private static final String[] TEACHER_FIELDS = {"address", "phone", "location"};
+    private static final String[] STUDENT_FIELDS = {"coursesRegistered", "status", "statusDate"};
+    private static final String[] VALUES = {"a", "b", "c", "d", "e", "f", "g", "h"};
+
+    /** Prevent the JIT from eliminating the mutations as dead code */
+    private static volatile Object sink;
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        TeacherRecord teacherRecord = new TeacherRecord("TR00000", "First", "Last", "address", "000", "cs", "MTL");
+        StudentRecord studentRecord = new StudentRecord("SR00001", "First", "Last", "ds", "active", "2018-01-01 00:00:00.000");
+
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            runReflection(teacherRecord, studentRecord, iterations);
+            runEnumDispatch(teacherRecord, studentRecord, iterations);
+        }
+
+        long reflectionNanos = 0;
+        long enumNanos = 0;
+        for (int round = 0; round < MEASURED_ROUNDS; round++) {
+            reflectionNanos += runReflection(teacherRecord, studentRecord, iterations);
+            enumNanos += runEnumDispatch(teacherRecord, studentRecord, iterations);
+        }
+
+        long operations = (long) iterations * MEASURED_ROUNDS * 2;
+        System.out.println(String.format("reflection:    %8.1f ns/op", (double) reflectionNanos / operations));
+        System.out.println(String.format("enum dispatch: %8.1f ns/op", (double) enumNanos / operations));
+        System.out.println(String.format("speedup:       %8.1fx", (double) reflectionNanos / enumNanos));
+    }
+
+    /**
+     * The path editRecord used to take: look the field up by name, then set it reflectively
+     */
+    private static long runReflection(TeacherRecord teacherRecord, StudentRecord studentRecord, int iterations) throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            String value = VALUES[i & (VALUES.length - 1)];
+            setReflectively(teacherRecord, TeacherRecord.class, TeacherRecord.Mutable_Fields.values(), TEACHER_FIELDS[i % 3], value);
+            setReflectively(studentRecord, StudentRecord.class, StudentRecord.Mutable_Fields.values(), STUDENT_FIELDS[i % 3], value);
+        }
+        sink = teacherRecord;
+        sink = studentRecord;
+        return System.nanoTime() - start;
+    }
+
+    private static boolean setReflectively(Object record, Class<?> recordClass, Enum<?>[] mutableFields, String fieldName, String value) throws Exception {
+        for (Enum<?> field : mutableFields) {
+            if (field.name().equals(fieldName)) {
+                Field recordField = recordClass.getDeclaredField(fieldName);
+                recordField.setAccessible(true);
+                recordField.set(record, value);
+                recordField.setAccessible(false);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long runEnumDispatch(TeacherRecord teacherRecord, StudentRecord studentRecord, int iterations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            String value = VALUES[i & (VALUES.length - 1)];
+            TeacherRecord.Mutable_Fields.fromName(TEACHER_FIELDS[i % 3]).set(teacherRecord, value);
+            StudentRecord.Mutable_Fields.fromName(STUDENT_FIELDS[i % 3]).set(studentRecord, value);
+        }
+        sink = teacherRecord;
+        sink = studentRecord;
+        return System.nanoTime() - start;
+    }
+}
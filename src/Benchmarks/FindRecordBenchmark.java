@@ -0,0 +1,70 @@
+package Benchmarks;
+
+import Servers.CenterServer;
+import Utils.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Latency and correctness check of the cluster-wide lookup done by findRecord.
+ *
+ * Starts every server of the cluster configuration in this process, then looks up from one center
+ * records created on another one just before, so before its next record filter share, and records
+ * that the filters already hold. Every lookup must find its record: a filter shared before the
+ * record was created rules it out, and the lookup has to fall back to the other servers.
+ * Exits with status 1 if any record is reported as not found.
+ *
+ * Usage: java Benchmarks.FindRecordBenchmark [lookups]
+ */
+public class FindRecordBenchmark {
+    private static final String MANAGER_NUMBER = "0001";
+
+    public static void main(String[] args) throws Exception {
+        int lookups = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        List<Config.Server_ID> centers = new ArrayList<>();
+        List<CenterServer> servers = new ArrayList<>();
+        for (Config.Server_ID id : Config.Server_ID.values()) {
+            CenterServer server = new CenterServer(id);
+            if (id == id.getCenter() && !id.isReplica()) {
+                centers.add(id);
+                servers.add(server);
+            }
+        }
+        if (centers.size() < 2) {
+            System.out.println("The cluster needs at least two centers");
+            System.exit(1);
+        }
+        String owner = centers.get(1).name() + MANAGER_NUMBER;
+        String reader = centers.get(0).name() + MANAGER_NUMBER;
+
+        // Let every server share its filter once, the lookups below then run against fresh filters
+        servers.get(1).createSRecord(owner, "First", "Last", "ds", "active");
+        Thread.sleep(2 * Config.RECORD_FILTER_SHARE_MILLIS);
+
+        String[] recordIDs = new String[lookups];
+        long createdNanos = 0;
+        int createdMisses = 0;
+        for (int i = 0; i < lookups; i++) {
+            recordIDs[i] = servers.get(1).createSRecord(owner, "First", "Last" + i, "ds", "active");
+            long start = System.nanoTime();
+            if (servers.get(0).findRecord(reader, recordIDs[i]).isEmpty())
+                createdMisses++;
+            createdNanos += System.nanoTime() - start;
+        }
+
+        Thread.sleep(2 * Config.RECORD_FILTER_SHARE_MILLIS);
+        long sharedNanos = 0;
+        int sharedMisses = 0;
+        for (String recordID : recordIDs) {
+            long start = System.nanoTime();
+            if (servers.get(0).findRecord(reader, recordID).isEmpty())
+                sharedMisses++;
+            sharedNanos += System.nanoTime() - start;
+        }
+
+        System.out.println(String.format("created just before: %8.2f ms/lookup, %d not found", createdNanos / 1e6 / lookups, createdMisses));
+        System.out.println(String.format("in shared filters:   %8.2f ms/lookup, %d not found", sharedNanos / 1e6 / lookups, sharedMisses));
+        System.exit(createdMisses + sharedMisses == 0 ? 0 : 1);
+    }
+}
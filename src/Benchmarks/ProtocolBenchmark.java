@@ -0,0 +1,76 @@
+package Benchmarks;
+
+import Servers.PeerMessage;
+import Utils.Config;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Microbenchmark of the encoding and decoding of a transfer request between two servers.
+ *
+ * Compares the former pipe-delimited string (concatenation + getBytes, then new String + trim + split)
+ * with the binary PeerMessage framing encoded into and decoded from a reused direct buffer.
+ * Each path is warmed up first so that the JIT has compiled it before it is measured.
+ *
+ * Usage: java Benchmarks.ProtocolBenchmark [iterations]
+ */
+public class ProtocolBenchmark {
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 5;
+    /** Size of the datagram buffer the receiving side used to allocate for every request */
+    private static final int DELIMITED_BUFFER_SIZE = 1000;
+    private static final String[] FIELDS = {"MTL0001", "TR00042", "Qu\u1ed1c Minh", "V\u0169", "1455 De Maisonneuve Blvd. W.", "514-848-2424", "distributed systems", "MTL"};
+
+    /** Prevent the JIT from eliminating the decoding as dead code */
+    private static volatile Object sink;
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        ByteBuffer buffer = ByteBuffer.allocateDirect(Config.UDP_BUFFER_SIZE);
+
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            runDelimited(iterations);
+            runBinary(buffer, iterations);
+        }
+
+        long delimitedNanos = 0;
+        long binaryNanos = 0;
+        for (int round = 0; round < MEASURED_ROUNDS; round++) {
+            delimitedNanos += runDelimited(iterations);
+            binaryNanos += runBinary(buffer, iterations);
+        }
+
+        long operations = (long) iterations * MEASURED_ROUNDS;
+        System.out.println(String.format("pipe-delimited: %8.1f ns/op", (double) delimitedNanos / operations));
+        System.out.println(String.format("binary framed:  %8.1f ns/op", (double) binaryNanos / operations));
+        System.out.println(String.format("speedup:        %8.1fx", (double) delimitedNanos / binaryNanos));
+    }
+
+    /**
+     * The path a transfer request used to take, on both ends of the datagram
+     */
+    private static long runDelimited(int iterations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            String request = Config.FUNC_TRANSFER_TEACHER_RECORD + "|" + FIELDS[0] + "|" + FIELDS[1] + "|" + FIELDS[2] + "|" + FIELDS[3]
+                    + "|" + FIELDS[4] + "|" + FIELDS[5] + "|" + FIELDS[6] + "|" + FIELDS[7];
+            byte[] sent = request.getBytes();
+            // The receiving side used to copy the whole datagram buffer
+            byte[] received = new byte[DELIMITED_BUFFER_SIZE];
+            System.arraycopy(sent, 0, received, 0, sent.length);
+            sink = new String(received).trim().split(Config.DELIMITER);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long runBinary(ByteBuffer buffer, int iterations) throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            buffer.clear();
+            PeerMessage.encode(buffer, PeerMessage.Message_Type.TRANSFER_RECORDS, i, FIELDS);
+            buffer.flip();
+            sink = PeerMessage.decode(buffer);
+        }
+        return System.nanoTime() - start;
+    }
+}
@@ -1,15 +1,24 @@
 package Client;
 
 import Servers.Record;
+import Servers.SecondaryIndex;
 import Servers.StudentRecord;
 import Servers.TeacherRecord;
 import Stubs.CenterServer;
+import Stubs.StubPool;
 import Utils.Config;
 
 import javax.xml.rpc.ServiceException;
+import java.io.BufferedReader;
+import java.io.FileReader;
 import java.io.IOException;
+import java.net.MalformedURLException;
 import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.logging.FileHandler;
 import java.util.logging.Logger;
 import java.util.logging.SimpleFormatter;
@@ -22,6 +31,7 @@ public class ManagerClient {
     private Logger LOGGER;
     private String managerID;
     private static Scanner sc;
+    private static final StubPool STUBS = new StubPool();
 
     private ManagerClient(String managerID) throws IOException {
         this.managerID = managerID;
@@ -68,55 +78,94 @@ public class ManagerClient {
     private static void singleThreadUI() throws Exception {
         System.out.print("Enter Manager ID: ");
         String managerID = sc.nextLine().toUpperCase();
-        Config.Server_ID serverID = Config.Server_ID.valueOf(managerID.substring(0, 3));
+        Config.Server_ID serverID = Config.Server_ID.ofManagerID(managerID);
         ManagerClient client = new ManagerClient(managerID);
         client.initiateLogger();
 
         CenterServer dcmsServer = connectToServer(serverID);
+        List<CenterServer> replicas = connectToReplicas(serverID);
+        SessionReader reader = new SessionReader(dcmsServer, replicas, managerID);
         System.out.println(managerID + " connect to server " + serverID.name() + " successfully");
 
-        int input;
-        do {
-            System.out.print(Config.SINGLE_THREAD_MENU);
-            input = Integer.parseInt(sc.nextLine());
-            switch (input) {
-                case 1:
-                    client.createStudentRecord(dcmsServer);
-                    break;
-                case 2:
-                    client.createTeacherRecord(dcmsServer);
-                    break;
-                case 3:
-                    client.editRecord(dcmsServer);
-                    break;
-                case 4:
-                    client.getRecordCount(dcmsServer);
-                    break;
-                case 5:
-                    client.transferRecord(dcmsServer);
-                    break;
-                case 6:
-                    client.printRecord(dcmsServer);
-                    break;
-                case 7:
-                    System.out.println(dcmsServer.printAllRecords());
-                    break;
-                case 8:
-                    System.out.print("Enter Manager ID: ");
-                    managerID = sc.nextLine().toUpperCase();
-                    serverID = Config.Server_ID.valueOf(managerID.substring(0, 3));
-                    client = new ManagerClient(managerID);
-                    client.initiateLogger();
-
-                    dcmsServer = connectToServer(serverID);
-                    System.out.println(managerID + " connect to server " + serverID.name() + " successfully");
-                    break;
-                default:
-                    break;
-            }
-        } while (input != 0);
-
-
+        try {
+            int input;
+            do {
+                System.out.print(Config.SINGLE_THREAD_MENU);
+                input = Integer.parseInt(sc.nextLine());
+                switch (input) {
+                    case 1:
+                        client.createStudentRecord(dcmsServer);
+                        reader.markWritten();
+                        break;
+                    case 2:
+                        client.createTeacherRecord(dcmsServer);
+                        reader.markWritten();
+                        break;
+                    case 3:
+                        client.editRecord(dcmsServer);
+                        reader.markWritten();
+                        break;
+                    case 4:
+                        client.getRecordCount(reader);
+                        break;
+                    case 5:
+                        client.transferRecord(dcmsServer);
+                        reader.markWritten();
+                        break;
+                    case 6:
+                        client.printRecord(reader);
+                        break;
+                    case 7:
+                        client.printAllRecords(reader);
+                        break;
+                    case 8:
+                        STUBS.release(serverID, dcmsServer);
+                        releaseReplicas(serverID, replicas);
+                        // Not released twice if connecting to the next center fails
+                        dcmsServer = null;
+                        replicas = new ArrayList<>();
+                        System.out.print("Enter Manager ID: ");
+                        managerID = sc.nextLine().toUpperCase();
+                        serverID = Config.Server_ID.ofManagerID(managerID);
+                        client = new ManagerClient(managerID);
+                        client.initiateLogger();
+
+                        dcmsServer = connectToServer(serverID);
+                        replicas = connectToReplicas(serverID);
+                        reader = new SessionReader(dcmsServer, replicas, managerID);
+                        System.out.println(managerID + " connect to server " + serverID.name() + " successfully");
+                        break;
+                    case 9:
+                        client.queryRecords(dcmsServer, false);
+                        break;
+                    case 10:
+                        client.importRecords(dcmsServer);
+                        reader.markWritten();
+                        break;
+                    case 11:
+                        client.getRecordCount(dcmsServer, true);
+                        break;
+                    case 12:
+                        client.transferMatchingRecords(dcmsServer);
+                        reader.markWritten();
+                        break;
+                    case 13:
+                        System.out.println(dcmsServer.getRebalanceStatus(managerID));
+                        break;
+                    case 14:
+                        client.findRecord(dcmsServer);
+                        break;
+                    case 15:
+                        client.queryRecords(dcmsServer, true);
+                        break;
+                    default:
+                        break;
+                }
+            } while (input != 0);
+        } finally {
+            STUBS.release(serverID, dcmsServer);
+            releaseReplicas(serverID, replicas);
+        }
     }
 
     private static void multiThreadUI() throws Exception {
@@ -148,182 +197,222 @@ public class ManagerClient {
          */
         // 1
         new Thread(() -> {
+            Config.Server_ID serverID = null;
+            CenterServer dcmsServer = null;
             try {
                 String managerID = "MTL2111";
-                Config.Server_ID serverID = Config.Server_ID.valueOf(managerID.substring(0, 3).toUpperCase());
+                serverID = Config.Server_ID.ofManagerID(managerID.toUpperCase());
                 ManagerClient client = new ManagerClient(managerID);
                 client.initiateLogger();
 
                 // Pass the NameComponent to the NamingService to get the object, then narrow it to proper type
-                CenterServer dcmsServer = connectToServer(serverID);
+                dcmsServer = connectToServer(serverID);
                 client.writeLog(managerID + " connect to server " + serverID.name() + " successfully");
 
                 String recordID = dcmsServer.createSRecord(managerID, "Quoc Minh", "Vu", "distributed system", "Active");
                 client.writeLog(recordID + " is created");
             } catch (Exception e) {
                 e.printStackTrace();
+            } finally {
+                STUBS.release(serverID, dcmsServer);
             }
         }).start();
         // 2
         new Thread(() -> {
+            Config.Server_ID serverID = null;
+            CenterServer dcmsServer = null;
             try {
                 String managerID = "MTL2112";
-                Config.Server_ID serverID = Config.Server_ID.valueOf(managerID.substring(0, 3).toUpperCase());
+                serverID = Config.Server_ID.ofManagerID(managerID.toUpperCase());
                 ManagerClient client = new ManagerClient(managerID);
                 client.initiateLogger();
 
                 // Pass the NameComponent to the NamingService to get the object, then narrow it to proper type
-                CenterServer dcmsServer = connectToServer(serverID);
+                dcmsServer = connectToServer(serverID);
                 client.writeLog(managerID + " connect to server " + serverID.name() + " successfully");
 
                 String recordID = dcmsServer.createSRecord(managerID, "Duc Son", "Vo", "advanced programming", "Active");
                 client.writeLog(recordID + " is created");
             } catch (Exception e) {
                 e.printStackTrace();
+            } finally {
+                STUBS.release(serverID, dcmsServer);
             }
         }).start();
         // 3
         new Thread(() -> {
+            Config.Server_ID serverID = null;
+            CenterServer dcmsServer = null;
             try {
                 String managerID = "MTL2113";
-                Config.Server_ID serverID = Config.Server_ID.valueOf(managerID.substring(0, 3).toUpperCase());
+                serverID = Config.Server_ID.ofManagerID(managerID.toUpperCase());
                 ManagerClient client = new ManagerClient(managerID);
                 client.initiateLogger();
 
                 // Pass the NameComponent to the NamingService to get the object, then narrow it to proper type
-                CenterServer dcmsServer = connectToServer(serverID);
+                dcmsServer = connectToServer(serverID);
                 client.writeLog(managerID + " connect to server " + serverID.name() + " successfully");
 
                 String recordID = dcmsServer.createSRecord(managerID, "Duy Tung", "Viet", "human-computer interaction", "Active");
                 client.writeLog(recordID + " is created");
             } catch (Exception e) {
                 e.printStackTrace();
+            } finally {
+                STUBS.release(serverID, dcmsServer);
             }
         }).start();
         // 4
         new Thread(() -> {
+            Config.Server_ID serverID = null;
+            CenterServer dcmsServer = null;
             try {
                 String managerID = "MTL2114";
-                Config.Server_ID serverID = Config.Server_ID.valueOf(managerID.substring(0, 3).toUpperCase());
+                serverID = Config.Server_ID.ofManagerID(managerID.toUpperCase());
                 ManagerClient client = new ManagerClient(managerID);
                 client.initiateLogger();
 
                 // Pass the NameComponent to the NamingService to get the object, then narrow it to proper type
-                CenterServer dcmsServer = connectToServer(serverID);
+                dcmsServer = connectToServer(serverID);
                 client.writeLog(managerID + " connect to server " + serverID.name() + " successfully");
 
                 String recordID = dcmsServer.createSRecord(managerID, "Phi Son", "Van Mai", "social and information network", "Inactive");
                 client.writeLog(recordID + " is created");
             } catch (Exception e) {
                 e.printStackTrace();
+            } finally {
+                STUBS.release(serverID, dcmsServer);
             }
         }).start();
         // 5
         new Thread(() -> {
+            Config.Server_ID serverID = null;
+            CenterServer dcmsServer = null;
             try {
                 String managerID = "MTL2115";
-                Config.Server_ID serverID = Config.Server_ID.valueOf(managerID.substring(0, 3).toUpperCase());
+                serverID = Config.Server_ID.ofManagerID(managerID.toUpperCase());
                 ManagerClient client = new ManagerClient(managerID);
                 client.initiateLogger();
 
                 // Pass the NameComponent to the NamingService to get the object, then narrow it to proper type
-                CenterServer dcmsServer = connectToServer(serverID);
+                dcmsServer = connectToServer(serverID);
                 client.writeLog(managerID + " connect to server " + serverID.name() + " successfully");
 
                 String recordID = dcmsServer.createSRecord(managerID, "Duc Minh", "Vuong", "advanced programming practice", "Inactive");
                 client.writeLog(recordID + " is created");
             } catch (Exception e) {
                 e.printStackTrace();
+            } finally {
+                STUBS.release(serverID, dcmsServer);
             }
         }).start();
         // 6
         new Thread(() -> {
+            Config.Server_ID serverID = null;
+            CenterServer dcmsServer = null;
             try {
                 String managerID = "MTL2116";
-                Config.Server_ID serverID = Config.Server_ID.valueOf(managerID.substring(0, 3).toUpperCase());
+                serverID = Config.Server_ID.ofManagerID(managerID.toUpperCase());
                 ManagerClient client = new ManagerClient(managerID);
                 client.initiateLogger();
 
                 // Pass the NameComponent to the NamingService to get the object, then narrow it to proper type
-                CenterServer dcmsServer = connectToServer(serverID);
+                dcmsServer = connectToServer(serverID);
                 client.writeLog(managerID + " connect to server " + serverID.name() + " successfully");
 
                 String recordID = dcmsServer.createTRecord(managerID, "Trieu Nguyen", "Van", "sherbrooke", "123 784 5678", "information technology", "MTL");
                 client.writeLog(recordID + " is created");
             } catch (Exception e) {
                 e.printStackTrace();
+            } finally {
+                STUBS.release(serverID, dcmsServer);
             }
         }).start();
         // 7
         new Thread(() -> {
+            Config.Server_ID serverID = null;
+            CenterServer dcmsServer = null;
             try {
                 String managerID = "MTL2117";
-                Config.Server_ID serverID = Config.Server_ID.valueOf(managerID.substring(0, 3).toUpperCase());
+                serverID = Config.Server_ID.ofManagerID(managerID.toUpperCase());
                 ManagerClient client = new ManagerClient(managerID);
                 client.initiateLogger();
 
                 // Pass the NameComponent to the NamingService to get the object, then narrow it to proper type
-                CenterServer dcmsServer = connectToServer(serverID);
+                dcmsServer = connectToServer(serverID);
                 client.writeLog(managerID + " connect to server " + serverID.name() + " successfully");
 
                 String recordID = dcmsServer.createTRecord(managerID, "Nguyen Gia", "Vo", "sir george williams", "432 964 1930", "architect", "MTL");
                 client.writeLog(recordID + " is created");
             } catch (Exception e) {
                 e.printStackTrace();
+            } finally {
+                STUBS.release(serverID, dcmsServer);
             }
         }).start();
         // 8
         new Thread(() -> {
+            Config.Server_ID serverID = null;
+            CenterServer dcmsServer = null;
             try {
                 String managerID = "MTL2118";
-                Config.Server_ID serverID = Config.Server_ID.valueOf(managerID.substring(0, 3).toUpperCase());
+                serverID = Config.Server_ID.ofManagerID(managerID.toUpperCase());
                 ManagerClient client = new ManagerClient(managerID);
                 client.initiateLogger();
 
                 // Pass the NameComponent to the NamingService to get the object, then narrow it to proper type
-                CenterServer dcmsServer = connectToServer(serverID);
+                dcmsServer = connectToServer(serverID);
                 client.writeLog(managerID + " connect to server " + serverID.name() + " successfully");
 
                 String recordID = dcmsServer.createTRecord(managerID, "Mai Huong", "Van", "cavendish", "849 282 4567", "drawing", "MTL");
                 client.writeLog(recordID + " is created");
             } catch (Exception e) {
                 e.printStackTrace();
+            } finally {
+                STUBS.release(serverID, dcmsServer);
             }
         }).start();
         // 9
         new Thread(() -> {
+            Config.Server_ID serverID = null;
+            CenterServer dcmsServer = null;
             try {
                 String managerID = "MTL2119";
-                Config.Server_ID serverID = Config.Server_ID.valueOf(managerID.substring(0, 3).toUpperCase());
+                serverID = Config.Server_ID.ofManagerID(managerID.toUpperCase());
                 ManagerClient client = new ManagerClient(managerID);
                 client.initiateLogger();
 
                 // Pass the NameComponent to the NamingService to get the object, then narrow it to proper type
-                CenterServer dcmsServer = connectToServer(serverID);
+                dcmsServer = connectToServer(serverID);
                 client.writeLog(managerID + " connect to server " + serverID.name() + " successfully");
 
                 String recordID = dcmsServer.createTRecord(managerID, "Nguyen", "Vova", "mont royal", "514 234 9705", "electric", "MTL");
                 client.writeLog(recordID + " is created");
             } catch (Exception e) {
                 e.printStackTrace();
+            } finally {
+                STUBS.release(serverID, dcmsServer);
             }
         }).start();
         // 10
         new Thread(() -> {
+            Config.Server_ID serverID = null;
+            CenterServer dcmsServer = null;
             try {
                 String managerID = "MTL2110";
-                Config.Server_ID serverID = Config.Server_ID.valueOf(managerID.substring(0, 3).toUpperCase());
+                serverID = Config.Server_ID.ofManagerID(managerID.toUpperCase());
                 ManagerClient client = new ManagerClient(managerID);
                 client.initiateLogger();
 
                 // Pass the NameComponent to the NamingService to get the object, then narrow it to proper type
-                CenterServer dcmsServer = connectToServer(serverID);
+                dcmsServer = connectToServer(serverID);
                 client.writeLog(managerID + " connect to server " + serverID.name() + " successfully");
 
                 String recordID = dcmsServer.createTRecord(managerID, "Nguyen Binh", "Vuon", "metcalfe", "125 765 3378", "chemistry", "MTL");
                 client.writeLog(recordID + " is created");
             } catch (Exception e) {
                 e.printStackTrace();
+            } finally {
+                STUBS.release(serverID, dcmsServer);
             }
         }).start();
     }
@@ -334,15 +423,17 @@ public class ManagerClient {
          */
         // 1
         new Thread(() -> {
+            Config.Server_ID serverID = null;
+            CenterServer dcmsServer = null;
             try {
                 String managerID = "MTL3111";
                 String recordID = studentRecordID;
-                Config.Server_ID serverID = Config.Server_ID.valueOf(managerID.substring(0, 3).toUpperCase());
+                serverID = Config.Server_ID.ofManagerID(managerID.toUpperCase());
                 ManagerClient client = new ManagerClient(managerID);
                 client.initiateLogger();
 
                 // Pass the NameComponent to the NamingService to get the object, then narrow it to proper type
-                CenterServer dcmsServer = connectToServer(serverID);
+                dcmsServer = connectToServer(serverID);
 //                client.writeLog(managerID + " connect to server " + serverID.name() + " successfully");
 
                 boolean isSuccess = dcmsServer.editRecord(managerID, recordID, "coursesRegistered", "edited courses registered");
@@ -352,19 +443,23 @@ public class ManagerClient {
                     client.writeLog(recordID + " coursesRegistered is failed to edited");
             } catch (Exception e) {
                 e.printStackTrace();
+            } finally {
+                STUBS.release(serverID, dcmsServer);
             }
         }).start();
         // 2
         new Thread(() -> {
+            Config.Server_ID serverID = null;
+            CenterServer dcmsServer = null;
             try {
                 String managerID = "MTL3113";
                 String recordID = studentRecordID;
-                Config.Server_ID serverID = Config.Server_ID.valueOf(managerID.substring(0, 3).toUpperCase());
+                serverID = Config.Server_ID.ofManagerID(managerID.toUpperCase());
                 ManagerClient client = new ManagerClient(managerID);
                 client.initiateLogger();
 
                 // Pass the NameComponent to the NamingService to get the object, then narrow it to proper type
-                CenterServer dcmsServer = connectToServer(serverID);
+                dcmsServer = connectToServer(serverID);
 //                client.writeLog(managerID + " connect to server " + serverID.name() + " successfully");
 
                 boolean isSuccess = dcmsServer.transferRecord(managerID, recordID, "LVL");
@@ -374,19 +469,23 @@ public class ManagerClient {
                     client.writeLog(recordID + " failed to transfer to LVL ");
             } catch (Exception e) {
                 e.printStackTrace();
+            } finally {
+                STUBS.release(serverID, dcmsServer);
             }
         }).start();
         // 3
         new Thread(() -> {
+            Config.Server_ID serverID = null;
+            CenterServer dcmsServer = null;
             try {
                 String managerID = "MTL3112";
                 String recordID = studentRecordID;
-                Config.Server_ID serverID = Config.Server_ID.valueOf(managerID.substring(0, 3).toUpperCase());
+                serverID = Config.Server_ID.ofManagerID(managerID.toUpperCase());
                 ManagerClient client = new ManagerClient(managerID);
                 client.initiateLogger();
 
                 // Pass the NameComponent to the NamingService to get the object, then narrow it to proper type
-                CenterServer dcmsServer = connectToServer(serverID);
+                dcmsServer = connectToServer(serverID);
 //                client.writeLog(managerID + " connect to server " + serverID.name() + " successfully");
 
                 boolean isSuccess = dcmsServer.editRecord(managerID, recordID, "status", "edited status");
@@ -396,19 +495,23 @@ public class ManagerClient {
                     client.writeLog(recordID + " status is failed to edited");
             } catch (Exception e) {
                 e.printStackTrace();
+            } finally {
+                STUBS.release(serverID, dcmsServer);
             }
         }).start();
         // 4
         new Thread(() -> {
+            Config.Server_ID serverID = null;
+            CenterServer dcmsServer = null;
             try {
                 String managerID = "MTL3114";
                 String recordID = teacherRecordID;
-                Config.Server_ID serverID = Config.Server_ID.valueOf(managerID.substring(0, 3).toUpperCase());
+                serverID = Config.Server_ID.ofManagerID(managerID.toUpperCase());
                 ManagerClient client = new ManagerClient(managerID);
                 client.initiateLogger();
 
                 // Pass the NameComponent to the NamingService to get the object, then narrow it to proper type
-                CenterServer dcmsServer = connectToServer(serverID);
+                dcmsServer = connectToServer(serverID);
 //                client.writeLog(managerID + " connect to server " + serverID.name() + " successfully");
 
                 boolean isSuccess = dcmsServer.editRecord(managerID, recordID, "address", "edited address");
@@ -418,19 +521,23 @@ public class ManagerClient {
                     client.writeLog(recordID + " address is failed to edited");
             } catch (Exception e) {
                 e.printStackTrace();
+            } finally {
+                STUBS.release(serverID, dcmsServer);
             }
         }).start();
         // 5
         new Thread(() -> {
+            Config.Server_ID serverID = null;
+            CenterServer dcmsServer = null;
             try {
                 String managerID = "MTL3117";
                 String recordID = teacherRecordID;
-                Config.Server_ID serverID = Config.Server_ID.valueOf(managerID.substring(0, 3).toUpperCase());
+                serverID = Config.Server_ID.ofManagerID(managerID.toUpperCase());
                 ManagerClient client = new ManagerClient(managerID);
                 client.initiateLogger();
 
                 // Pass the NameComponent to the NamingService to get the object, then narrow it to proper type
-                CenterServer dcmsServer = connectToServer(serverID);
+                dcmsServer = connectToServer(serverID);
 //                client.writeLog(managerID + " connect to server " + serverID.name() + " successfully");
 
                 boolean isSuccess = dcmsServer.transferRecord(managerID, recordID, "DDO");
@@ -440,19 +547,23 @@ public class ManagerClient {
                     client.writeLog(recordID + " failed to transfer to DDO");
             } catch (Exception e) {
                 e.printStackTrace();
+            } finally {
+                STUBS.release(serverID, dcmsServer);
             }
         }).start();
         // 6
         new Thread(() -> {
+            Config.Server_ID serverID = null;
+            CenterServer dcmsServer = null;
             try {
                 String managerID = "MTL3116";
                 String recordID = teacherRecordID;
-                Config.Server_ID serverID = Config.Server_ID.valueOf(managerID.substring(0, 3).toUpperCase());
+                serverID = Config.Server_ID.ofManagerID(managerID.toUpperCase());
                 ManagerClient client = new ManagerClient(managerID);
                 client.initiateLogger();
 
                 // Pass the NameComponent to the NamingService to get the object, then narrow it to proper type
-                CenterServer dcmsServer = connectToServer(serverID);
+                dcmsServer = connectToServer(serverID);
 //                client.writeLog(managerID + " connect to server " + serverID.name() + " successfully");
 
                 boolean isSuccess = dcmsServer.editRecord(managerID, recordID, "location", "edited location");
@@ -462,19 +573,23 @@ public class ManagerClient {
                     client.writeLog(recordID + " location is failed to edited");
             } catch (Exception e) {
                 e.printStackTrace();
+            } finally {
+                STUBS.release(serverID, dcmsServer);
             }
         }).start();
         // 7
         new Thread(() -> {
+            Config.Server_ID serverID = null;
+            CenterServer dcmsServer = null;
             try {
                 String managerID = "MTL3115";
                 String recordID = teacherRecordID;
-                Config.Server_ID serverID = Config.Server_ID.valueOf(managerID.substring(0, 3).toUpperCase());
+                serverID = Config.Server_ID.ofManagerID(managerID.toUpperCase());
                 ManagerClient client = new ManagerClient(managerID);
                 client.initiateLogger();
 
                 // Pass the NameComponent to the NamingService to get the object, then narrow it to proper type
-                CenterServer dcmsServer = connectToServer(serverID);
+                dcmsServer = connectToServer(serverID);
 //                client.writeLog(managerID + " connect to server " + serverID.name() + " successfully");
 
                 boolean isSuccess = dcmsServer.editRecord(managerID, recordID, "phone", "edited phone");
@@ -484,26 +599,33 @@ public class ManagerClient {
                     client.writeLog(recordID + " phone is failed to edited");
             } catch (Exception e) {
                 e.printStackTrace();
+            } finally {
+                STUBS.release(serverID, dcmsServer);
             }
         }).start();
     }
 
-    private static CenterServer connectToServer(Config.Server_ID serverID) throws ServiceException {
-        switch (serverID) {
-            case MTL: {
-                Stubs.MTLCenterServerServiceLocator locator = new Stubs.MTLCenterServerServiceLocator();
-                return locator.getCenterServerPort();
-            }
-            case LVL: {
-                Stubs.LVLCenterServerServiceLocator locator = new Stubs.LVLCenterServerServiceLocator();
-                return locator.getCenterServerPort();
-            }
-            case DDO: {
-                Stubs.DDOCenterServerServiceLocator locator = new Stubs.DDOCenterServerServiceLocator();
-                return locator.getCenterServerPort();
-            }
-        }
-        return null;
+    /**
+     * Stubs of the read replicas of the center, empty if it has none
+     */
+    private static List<CenterServer> connectToReplicas(Config.Server_ID serverID) throws ServiceException, MalformedURLException {
+        List<CenterServer> replicas = new ArrayList<>();
+        for (Config.Server_ID replica : serverID.getReplicas())
+            replicas.add(connectToServer(replica));
+        return replicas;
+    }
+
+    private static void releaseReplicas(Config.Server_ID serverID, List<CenterServer> replicas) {
+        Config.Server_ID[] replicaIDs = serverID.getReplicas();
+        for (int i = 0; i < replicas.size(); i++)
+            STUBS.release(replicaIDs[i], replicas.get(i));
+    }
+
+    /**
+     * Stub of the center from the pool, to be released once the thread is done with it
+     */
+    private static CenterServer connectToServer(Config.Server_ID serverID) throws ServiceException, MalformedURLException {
+        return STUBS.acquire(serverID);
     }
 
     private void createStudentRecord(CenterServer dcmsServer) throws RemoteException {
@@ -538,6 +660,44 @@ public class ManagerClient {
         System.out.println(recordID + " created");
     }
 
+    private void importRecords(CenterServer dcmsServer) throws IOException {
+        /**
+         * One record per line, fields separated by '|'
+         * S|FirstName|LastName|CoursesRegistered|Status
+         * T|FirstName|LastName|Address|Phone|Specialization|Location
+         * Records are created in batches rather than with one call each
+         */
+        System.out.print("Enter file path: ");
+        String path = sc.nextLine();
+        List<CompletableFuture<String>> recordIDs = new ArrayList<>();
+        int skipped = 0;
+        try (RecordBatcher batcher = new RecordBatcher(dcmsServer, managerID);
+             BufferedReader reader = new BufferedReader(new FileReader(path))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(Config.DELIMITER, -1);
+                if (fields[0].equals(Config.IMPORT_STUDENT_RECORD) && fields.length == 5 && !fields[2].isEmpty())
+                    recordIDs.add(batcher.createSRecord(fields[1], fields[2], fields[3], fields[4]));
+                else if (fields[0].equals(Config.IMPORT_TEACHER_RECORD) && fields.length == 7 && !fields[2].isEmpty())
+                    recordIDs.add(batcher.createTRecord(fields[1], fields[2], fields[3], fields[4], fields[5], fields[6]));
+                else if (!line.trim().isEmpty())
+                    skipped++;
+            }
+        }
+
+        int created = 0;
+        for (CompletableFuture<String> recordID : recordIDs) {
+            try {
+                recordID.join();
+                created++;
+            } catch (CompletionException e) {
+                LOGGER.severe(e.getCause().getMessage());
+            }
+        }
+        LOGGER.info(created + " records imported from " + path);
+        System.out.println(created + " records created, " + (recordIDs.size() - created) + " failed, " + skipped + " lines skipped");
+    }
+
     private void editRecord(CenterServer dcmsServer) throws RemoteException {
         int input;
         System.out.print("Enter Record ID: ");
@@ -602,10 +762,36 @@ public class ManagerClient {
         }
     }
 
-    private void printRecord(CenterServer dcmsServer) throws RemoteException {
+    private void transferMatchingRecords(CenterServer dcmsServer) throws RemoteException {
+        int i = 1;
+        System.out.println(System.lineSeparator());
+        System.out.println("0. All records");
+        for (SecondaryIndex.Indexed_Fields field : SecondaryIndex.Indexed_Fields.values()) {
+            System.out.println(i + ". " + field.name());
+            i++;
+        }
+        System.out.print("Your choice: ");
+        int input = Integer.parseInt(sc.nextLine());
+        String fieldName = "";
+        String value = "";
+        if (input > 0) {
+            fieldName = SecondaryIndex.Indexed_Fields.values()[--input].name();
+            System.out.print("Enter Value: ");
+            value = sc.nextLine();
+        }
+        System.out.print("Enter Server Name: ");
+        String serverName = sc.nextLine().toUpperCase();
+
+        String[] transferred = dcmsServer.transferMatchingRecords(managerID, fieldName, value, serverName);
+        int count = transferred == null ? 0 : transferred.length;
+        System.out.println(count + " records transfered to " + serverName);
+        LOGGER.info(count + " records transfered to " + serverName);
+    }
+
+    private void printRecord(SessionReader reader) throws RemoteException {
         System.out.print("Enter Record ID: ");
         String recordID = sc.nextLine().toUpperCase();
-        String result = dcmsServer.printRecords(managerID, recordID);
+        String result = reader.printRecords(recordID);
         if (result.compareTo("") != 0) {
             System.out.println(result);
             LOGGER.info(String.format(recordID + " is printed"));
@@ -616,8 +802,64 @@ public class ManagerClient {
         }
     }
 
-    private void getRecordCount(CenterServer dcmsServer) throws RemoteException {
-        String result = dcmsServer.getRecordCounts(managerID);
+    private void findRecord(CenterServer dcmsServer) throws RemoteException {
+        System.out.print("Enter Record ID: ");
+        String recordID = sc.nextLine().toUpperCase();
+        String result = dcmsServer.findRecord(managerID, recordID);
+        if (result.compareTo("") != 0)
+            System.out.println(result);
+        else
+            System.out.println(recordID + " not found in any center");
+        LOGGER.info(recordID + " looked up in every center");
+    }
+
+    private void queryRecords(CenterServer dcmsServer, boolean everyCenter) throws RemoteException {
+        int i = 1;
+        System.out.println(System.lineSeparator());
+        for (SecondaryIndex.Indexed_Fields field : SecondaryIndex.Indexed_Fields.values()) {
+            System.out.println(i + ". " + field.name());
+            i++;
+        }
+        System.out.print("Your choice: ");
+        int input = Integer.parseInt(sc.nextLine());
+        String fieldName = SecondaryIndex.Indexed_Fields.values()[--input].name();
+        System.out.print("Enter Value: ");
+        String value = sc.nextLine();
+
+        String result = everyCenter ? dcmsServer.queryCluster(managerID, fieldName, value, Config.MAX_QUERY_RESULTS)
+                                    : dcmsServer.queryRecords(managerID, fieldName, value, Config.MAX_QUERY_RESULTS);
+        if (result.compareTo("") != 0)
+            System.out.print(result);
+        else
+            System.out.println("No record found with " + fieldName + " = " + value);
+        LOGGER.info(fieldName + " = " + value + " queried");
+    }
+
+    private void printAllRecords(SessionReader reader) throws RemoteException {
+        /**
+         * Fetch the records page by page
+         * Only one page is held in memory at a time, however large the center is
+         */
+        String cursor = "";
+        do {
+            String page = reader.printRecordsPage(cursor, Config.PAGE_SIZE);
+            int delimiter = page.indexOf(Config.PAGE_CURSOR_DELIMITER);
+            if (delimiter < 0)
+                break;
+            cursor = page.substring(0, delimiter);
+            System.out.print(page.substring(delimiter + Config.PAGE_CURSOR_DELIMITER.length()));
+        } while (!cursor.isEmpty());
+        LOGGER.info("All records printed");
+    }
+
+    private void getRecordCount(SessionReader reader) throws RemoteException {
+        String result = reader.getRecordCounts();
+        System.out.println(result);
+        LOGGER.info(String.format(Config.LOG_RECORDS_COUNT, managerID, result));
+    }
+
+    private void getRecordCount(CenterServer dcmsServer, boolean exact) throws RemoteException {
+        String result = exact ? dcmsServer.getExactRecordCounts(managerID) : dcmsServer.getRecordCounts(managerID);
         System.out.println(result);
         LOGGER.info(String.format(Config.LOG_RECORDS_COUNT, managerID, result));
     }
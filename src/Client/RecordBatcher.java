@@ -0,0 +1,150 @@
+package Client;
+
+import Stubs.CenterServer;
+import Utils.Config;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client-side auto-batcher of record creations.
+ *
+ * Individual creates submitted within a short time window are grouped and sent
+ * to the center in one createSRecords / createTRecords call. A batch is sent as soon as
+ * it reaches the maximum size, or when the window of its first create expires.
+ * Each create returns a future completed with its recordID once its batch is acknowledged.
+ */
+public class RecordBatcher implements AutoCloseable {
+    private final CenterServer dcmsServer;
+    private final String managerID;
+    private final long windowMillis;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService scheduler;
+
+    private final Batch studentBatch = new Batch(false);
+    private final Batch teacherBatch = new Batch(true);
+
+    public RecordBatcher(CenterServer dcmsServer, String managerID) {
+        this(dcmsServer, managerID, Config.BATCH_WINDOW_MILLIS, Config.MAX_BATCH_SIZE);
+    }
+
+    public RecordBatcher(CenterServer dcmsServer, String managerID, long windowMillis, int maxBatchSize) {
+        this.dcmsServer = dcmsServer;
+        this.managerID = managerID;
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = Math.min(maxBatchSize, Config.MAX_BATCH_SIZE);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "RecordBatcher-" + managerID);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public CompletableFuture<String> createSRecord(String firstName, String lastName, String coursesRegistered, String status) {
+        return studentBatch.add(new String[]{firstName, lastName, coursesRegistered, status});
+    }
+
+    public CompletableFuture<String> createTRecord(String firstName, String lastName, String address, String phone, String specialization, String location) {
+        return teacherBatch.add(new String[]{firstName, lastName, address, phone, specialization, location});
+    }
+
+    /**
+     * Send whatever is pending without waiting for the window to expire
+     */
+    public void flush() {
+        studentBatch.flush();
+        teacherBatch.flush();
+    }
+
+    @Override
+    public void close() {
+        flush();
+        scheduler.shutdown();
+    }
+
+    /**
+     * Pending creates of one type of record
+     */
+    private final class Batch {
+        private final boolean teacher;
+        private List<String[]> payloads = new ArrayList<>();
+        private List<CompletableFuture<String>> futures = new ArrayList<>();
+        private ScheduledFuture<?> scheduledFlush;
+
+        Batch(boolean teacher) {
+            this.teacher = teacher;
+        }
+
+        CompletableFuture<String> add(String[] payload) {
+            CompletableFuture<String> future = new CompletableFuture<>();
+            boolean full;
+            synchronized (this) {
+                payloads.add(payload);
+                futures.add(future);
+                full = payloads.size() >= maxBatchSize;
+                if (!full && scheduledFlush == null)
+                    scheduledFlush = scheduler.schedule(this::flush, windowMillis, TimeUnit.MILLISECONDS);
+            }
+            if (full)
+                flush();
+            return future;
+        }
+
+        void flush() {
+            List<String[]> sentPayloads;
+            List<CompletableFuture<String>> sentFutures;
+            synchronized (this) {
+                if (payloads.isEmpty())
+                    return;
+                sentPayloads = payloads;
+                sentFutures = futures;
+                payloads = new ArrayList<>();
+                futures = new ArrayList<>();
+                if (scheduledFlush != null) {
+                    scheduledFlush.cancel(false);
+                    scheduledFlush = null;
+                }
+            }
+
+            // The call is made outside the lock so that new creates keep filling the next batch
+            try {
+                String[] recordIDs = teacher ? sendTeacherRecords(sentPayloads) : sendStudentRecords(sentPayloads);
+                if (recordIDs == null || recordIDs.length != sentPayloads.size())
+                    throw new RemoteException("Batch of " + sentPayloads.size() + " records rejected by the server");
+                for (int i = 0; i < recordIDs.length; i++)
+                    sentFutures.get(i).complete(recordIDs[i]);
+            } catch (Exception e) {
+                for (CompletableFuture<String> future : sentFutures)
+                    future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private String[] sendStudentRecords(List<String[]> payloads) throws RemoteException {
+        String[][] columns = columnsOf(payloads, 4);
+        return dcmsServer.createSRecords(managerID, columns[0], columns[1], columns[2], columns[3]);
+    }
+
+    private String[] sendTeacherRecords(List<String[]> payloads) throws RemoteException {
+        String[][] columns = columnsOf(payloads, 6);
+        return dcmsServer.createTRecords(managerID, columns[0], columns[1], columns[2], columns[3], columns[4], columns[5]);
+    }
+
+    /**
+     * Transpose the payloads into the parallel arrays expected by the web methods
+     */
+    private static String[][] columnsOf(List<String[]> payloads, int width) {
+        String[][] columns = new String[width][payloads.size()];
+        for (int i = 0; i < payloads.size(); i++) {
+            for (int j = 0; j < width; j++)
+                columns[j][i] = payloads.get(i)[j];
+        }
+        return columns;
+    }
+}
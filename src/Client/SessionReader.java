@@ -0,0 +1,73 @@
+package Client;
+
+import Stubs.CenterServer;
+import Utils.Config;
+
+import java.rmi.RemoteException;
+import java.util.List;
+
+/**
+ * Reads of one manager spread over the read replicas of its center, with read-your-writes.
+ *
+ * Reads go to the replicas in turn, writes always go to the primary. After a write the next read
+ * first asks the primary for a session token, the position of the write in its log. A replica waits
+ * until it has applied the log up to the token before answering, and answers Config.REPLICA_BEHIND
+ * if it is still behind after a short while: the read is then sent to the primary.
+ * A center without replicas is read from the primary, as before.
+ */
+public class SessionReader {
+    private interface Read {
+        String read(CenterServer server, String sessionToken) throws RemoteException;
+    }
+
+    private final CenterServer primary;
+    private final List<CenterServer> replicas;
+    private final String managerID;
+    private String sessionToken = "";
+    private boolean written;
+    private int nextReplica;
+
+    public SessionReader(CenterServer primary, List<CenterServer> replicas, String managerID) {
+        this.primary = primary;
+        this.replicas = replicas;
+        this.managerID = managerID;
+    }
+
+    /**
+     * To be called after every write of the manager, so that the next read sees it
+     */
+    public void markWritten() {
+        written = true;
+    }
+
+    public String printRecords(String recordID) throws RemoteException {
+        return read((server, token) -> server.printRecordsInSession(managerID, recordID, token));
+    }
+
+    public String printRecordsPage(String cursor, int pageSize) throws RemoteException {
+        return read((server, token) -> server.printRecordsPageInSession(cursor, pageSize, token));
+    }
+
+    public String getRecordCounts() throws RemoteException {
+        return read((server, token) -> server.getRecordCountsInSession(managerID, token));
+    }
+
+    private String read(Read read) throws RemoteException {
+        if (written) {
+            sessionToken = primary.getSessionToken(managerID);
+            written = false;
+        }
+        if (!replicas.isEmpty()) {
+            CenterServer replica = replicas.get(nextReplica);
+            nextReplica = (nextReplica + 1) % replicas.size();
+            try {
+                String answer = read.read(replica, sessionToken);
+                if (!Config.REPLICA_BEHIND.equals(answer))
+                    return answer;
+            } catch (RemoteException e) {
+                // The replica is down, the primary answers instead
+            }
+        }
+        return read.read(primary, sessionToken);
+    }
+}
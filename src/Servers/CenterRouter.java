@@ -0,0 +1,355 @@
+package Servers;
+
+import Stubs.StubPool;
+import Utils.Config;
+import Utils.Config.Server_ID;
+
+import javax.jws.WebMethod;
+import javax.jws.WebService;
+import javax.xml.rpc.ServiceException;
+import java.net.MalformedURLException;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Logger;
+
+/**
+ * Front end of a center sharded across several nodes.
+ *
+ * It publishes the same web methods as a CenterServer at the address of the center, so managers
+ * do not know whether their center is sharded. Creates go to the shard holding the last name.
+ * Calls on a recordID go to every shard at once, since only the shard holding the record acts on it.
+ * Dumps, queries and pages are gathered from every shard and merged.
+ * Counts are answered by any shard, which already gathers the counts of every node of the cluster.
+ */
+@WebService(serviceName = "CenterServerService", portName = "CenterServerPort")
+public class CenterRouter implements ServerInterface {
+    private static final Logger LOGGER = Logger.getLogger(CenterServer.class.getName());
+    private static final StubPool STUBS = new StubPool();
+
+    private interface ShardCall<T> {
+        T call(Stubs.CenterServer shard) throws RemoteException;
+    }
+
+    private Server_ID center;
+    private Server_ID[] shards;
+    private ExecutorService executor;
+
+    public CenterRouter() {}
+
+    public CenterRouter(Server_ID center) {
+        this.center = center;
+        this.shards = center.getShards();
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "Router-" + center);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @WebMethod
+    public String createTRecord(String managerID, String firstName, String lastName, String address, String phone, String specialization, String location) {
+        if (lastName == null || lastName.isEmpty())
+            return "";
+        String recordID = call(center.shardOf(lastName), shard -> shard.createTRecord(managerID, firstName, lastName, address, phone, specialization, location));
+        return recordID == null ? "" : recordID;
+    }
+
+    @WebMethod
+    public String createSRecord(String managerID, String firstName, String lastName, String coursesRegistered, String status) {
+        if (lastName == null || lastName.isEmpty())
+            return "";
+        String recordID = call(center.shardOf(lastName), shard -> shard.createSRecord(managerID, firstName, lastName, coursesRegistered, status));
+        return recordID == null ? "" : recordID;
+    }
+
+    @WebMethod
+    public String[] createTRecords(String managerID, String[] firstNames, String[] lastNames, String[] addresses, String[] phones, String[] specializations, String[] locations) {
+        if (!isBatch(lastNames, firstNames, addresses, phones, specializations, locations))
+            return new String[0];
+        return createBatch(lastNames, (shard, i) -> shard.createTRecords(managerID, select(firstNames, i), select(lastNames, i), select(addresses, i), select(phones, i), select(specializations, i), select(locations, i)));
+    }
+
+    @WebMethod
+    public String[] createSRecords(String managerID, String[] firstNames, String[] lastNames, String[] coursesRegistered, String[] statuses) {
+        if (!isBatch(lastNames, firstNames, coursesRegistered, statuses))
+            return new String[0];
+        return createBatch(lastNames, (shard, i) -> shard.createSRecords(managerID, select(firstNames, i), select(lastNames, i), select(coursesRegistered, i), select(statuses, i)));
+    }
+
+    @WebMethod
+    public String getRecordCounts(String managerID) {
+        return firstAnswer(shard -> shard.getRecordCounts(managerID));
+    }
+
+    @WebMethod
+    public String getExactRecordCounts(String managerID) {
+        return firstAnswer(shard -> shard.getExactRecordCounts(managerID));
+    }
+
+    @WebMethod
+    public boolean editRecord(String managerID, String recordID, String fieldName, String newValue) {
+        return fanOut(shard -> shard.editRecord(managerID, recordID, fieldName, newValue)).contains(Boolean.TRUE);
+    }
+
+    @WebMethod
+    public boolean transferRecord(String managerID, String recordID, String remoteCenterServerName) {
+        return fanOut(shard -> shard.transferRecord(managerID, recordID, remoteCenterServerName)).contains(Boolean.TRUE);
+    }
+
+    @WebMethod
+    public String[] transferRecords(String managerID, String[] recordIDs, String remoteCenterServerName) {
+        if (recordIDs == null)
+            return new String[0];
+        /**
+         * Every shard transfers the records it holds, the others are left empty in its answer
+         */
+        String[] results = new String[recordIDs.length];
+        Arrays.fill(results, "");
+        for (String[] answer : fanOut(shard -> shard.transferRecords(managerID, recordIDs, remoteCenterServerName))) {
+            for (int i = 0; i < results.length && i < answer.length; i++) {
+                if (answer[i] != null && !answer[i].isEmpty())
+                    results[i] = answer[i];
+            }
+        }
+        return results;
+    }
+
+    @WebMethod
+    public String[] transferMatchingRecords(String managerID, String fieldName, String value, String remoteCenterServerName) {
+        List<String> transferred = new ArrayList<>();
+        for (String[] answer : fanOut(shard -> shard.transferMatchingRecords(managerID, fieldName, value, remoteCenterServerName)))
+            transferred.addAll(Arrays.asList(answer));
+        return transferred.toArray(new String[0]);
+    }
+
+    @WebMethod
+    public String printRecords(String managerID, String recordID) {
+        for (String answer : fanOut(shard -> shard.printRecords(managerID, recordID))) {
+            if (!answer.isEmpty())
+                return answer;
+        }
+        return "";
+    }
+
+    @WebMethod
+    public String printAllRecords() {
+        StringBuilder result = new StringBuilder();
+        for (String answer : fanOut(Stubs.CenterServer::printAllRecords))
+            result.append(answer);
+        return result.toString();
+    }
+
+    @WebMethod
+    public String getRebalanceStatus(String managerID) {
+        return String.join(System.lineSeparator(), fanOut(shard -> shard.getRebalanceStatus(managerID)));
+    }
+
+    @WebMethod
+    public String printRecordsPage(String cursor, int pageSize) {
+        if (pageSize <= 0)
+            pageSize = Config.PAGE_SIZE;
+        int size = Math.min(pageSize, Config.MAX_PAGE_SIZE);
+
+        /**
+         * Every shard returns its own page after the cursor, in ascending recordID order
+         * The page of the center is the first records of their merge, the cursor works for every shard
+         */
+        List<String> lines = new ArrayList<>();
+        boolean more = false;
+        for (String answer : fanOut(shard -> shard.printRecordsPage(cursor, size))) {
+            int delimiter = answer.indexOf(Config.PAGE_CURSOR_DELIMITER);
+            if (delimiter < 0)
+                continue;
+            more |= delimiter > 0;
+            for (String line : answer.substring(delimiter + Config.PAGE_CURSOR_DELIMITER.length()).split(System.lineSeparator())) {
+                if (!line.isEmpty())
+                    lines.add(line);
+            }
+        }
+        lines.sort((a, b) -> Integer.compare(keyOfLine(a), keyOfLine(b)));
+
+        StringBuilder page = new StringBuilder();
+        for (int i = 0; i < size && i < lines.size(); i++)
+            page.append(lines.get(i)).append(System.lineSeparator());
+        String nextCursor = "";
+        if (more || lines.size() > size)
+            nextCursor = Integer.toString(keyOfLine(lines.get(Math.min(size, lines.size()) - 1)), Character.MAX_RADIX);
+        return nextCursor + Config.PAGE_CURSOR_DELIMITER + page;
+    }
+
+    @WebMethod
+    public String queryRecords(String managerID, String fieldName, String value, int maxResults) {
+        if (maxResults <= 0)
+            maxResults = Config.MAX_QUERY_RESULTS;
+        int limit = Math.min(maxResults, Config.MAX_QUERY_RESULTS);
+
+        StringBuilder result = new StringBuilder();
+        int count = 0;
+        for (String answer : fanOut(shard -> shard.queryRecords(managerID, fieldName, value, limit))) {
+            for (String line : answer.split(System.lineSeparator())) {
+                if (!line.isEmpty() && count < limit) {
+                    result.append(line).append(System.lineSeparator());
+                    count++;
+                }
+            }
+        }
+        return result.toString();
+    }
+
+    @WebMethod
+    public String getRecordType(String recordID) {
+        return firstAnswer(shard -> shard.getRecordType(recordID));
+    }
+
+    /**
+     * Every shard queries the whole cluster, any of them answers
+     */
+    @WebMethod
+    public String findRecord(String managerID, String recordID) {
+        return firstAnswer(shard -> shard.findRecord(managerID, recordID));
+    }
+
+    @WebMethod
+    public String queryCluster(String managerID, String fieldName, String value, int maxResults) {
+        return firstAnswer(shard -> shard.queryCluster(managerID, fieldName, value, maxResults));
+    }
+
+    /**
+     * The shards of a sharded center have no replicas, their answers are always up to date
+     */
+    @WebMethod
+    public String getSessionToken(String managerID) {
+        return "";
+    }
+
+    @WebMethod
+    public String printRecordsInSession(String managerID, String recordID, String sessionToken) {
+        return printRecords(managerID, recordID);
+    }
+
+    @WebMethod
+    public String printAllRecordsInSession(String sessionToken) {
+        return printAllRecords();
+    }
+
+    @WebMethod
+    public String printRecordsPageInSession(String cursor, int pageSize, String sessionToken) {
+        return printRecordsPage(cursor, pageSize);
+    }
+
+    @WebMethod
+    public String getRecordCountsInSession(String managerID, String sessionToken) {
+        return getRecordCounts(managerID);
+    }
+
+    private interface BatchCall {
+        String[] call(Stubs.CenterServer shard, int[] indexes) throws RemoteException;
+    }
+
+    /**
+     * Send every shard the records of the batch it holds, all shards at once
+     * IDs are returned in the order of the payloads, the records of a shard that failed are left empty
+     */
+    private String[] createBatch(String[] lastNames, BatchCall batchCall) {
+        Map<Server_ID, List<Integer>> byShard = new HashMap<>();
+        for (int i = 0; i < lastNames.length; i++)
+            byShard.computeIfAbsent(center.shardOf(lastNames[i]), shard -> new ArrayList<>()).add(i);
+
+        Map<Server_ID, int[]> indexes = new HashMap<>();
+        Map<Server_ID, CompletableFuture<String[]>> answers = new HashMap<>();
+        for (Map.Entry<Server_ID, List<Integer>> batch : byShard.entrySet()) {
+            int[] shardIndexes = batch.getValue().stream().mapToInt(Integer::intValue).toArray();
+            indexes.put(batch.getKey(), shardIndexes);
+            answers.put(batch.getKey(), CompletableFuture.supplyAsync(() -> call(batch.getKey(), shard -> batchCall.call(shard, shardIndexes)), executor));
+        }
+
+        String[] recordIDs = new String[lastNames.length];
+        Arrays.fill(recordIDs, "");
+        for (Map.Entry<Server_ID, CompletableFuture<String[]>> answer : answers.entrySet()) {
+            String[] shardRecordIDs = answer.getValue().join();
+            int[] shardIndexes = indexes.get(answer.getKey());
+            if (shardRecordIDs == null || shardRecordIDs.length != shardIndexes.length)
+                continue;
+            for (int i = 0; i < shardIndexes.length; i++)
+                recordIDs[shardIndexes[i]] = shardRecordIDs[i];
+        }
+        return recordIDs;
+    }
+
+    /**
+     * Call every shard at once, return the answers of those that answered, in the order of the shards
+     */
+    private <T> List<T> fanOut(ShardCall<T> shardCall) {
+        List<CompletableFuture<T>> answers = new ArrayList<>(shards.length);
+        for (Server_ID shard : shards)
+            answers.add(CompletableFuture.supplyAsync(() -> call(shard, shardCall), executor));
+        List<T> results = new ArrayList<>(shards.length);
+        for (CompletableFuture<T> answer : answers) {
+            T result = answer.join();
+            if (result != null)
+                results.add(result);
+        }
+        return results;
+    }
+
+    /**
+     * Ask the shards in turn until one answers
+     */
+    private String firstAnswer(ShardCall<String> shardCall) {
+        for (Server_ID shard : shards) {
+            String answer = call(shard, shardCall);
+            if (answer != null)
+                return answer;
+        }
+        return "";
+    }
+
+    /**
+     * Return null if the shard cannot be reached
+     */
+    private <T> T call(Server_ID shard, ShardCall<T> shardCall) {
+        Stubs.CenterServer stub = null;
+        try {
+            stub = STUBS.acquire(shard);
+            return shardCall.call(stub);
+        } catch (RemoteException | ServiceException | MalformedURLException e) {
+            LOGGER.severe(String.format(Config.LOG_SHARD_FAILED, shard, center, e.getMessage()));
+            return null;
+        } finally {
+            STUBS.release(shard, stub);
+        }
+    }
+
+    private static int keyOfLine(String line) {
+        int end = line.indexOf(':');
+        return RecordIndex.keyOf(end < 0 ? line : line.substring(0, end));
+    }
+
+    private static boolean isBatch(String[] lastNames, String[]... fields) {
+        if (lastNames == null || lastNames.length == 0 || lastNames.length > Config.MAX_BATCH_SIZE)
+            return false;
+        for (String lastName : lastNames) {
+            if (lastName == null || lastName.isEmpty())
+                return false;
+        }
+        for (String[] field : fields) {
+            if (field == null || field.length != lastNames.length)
+                return false;
+        }
+        return true;
+    }
+
+    private static String[] select(String[] values, int[] indexes) {
+        String[] selected = new String[indexes.length];
+        for (int i = 0; i < indexes.length; i++)
+            selected[i] = values[indexes[i]];
+        return selected;
+    }
+}
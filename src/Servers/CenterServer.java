@@ -6,12 +6,22 @@ import Utils.Config.Server_ID;
 import javax.jws.WebMethod;
 import javax.jws.WebService;
 import java.io.IOException;
-import java.lang.reflect.Field;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
-import java.net.InetAddress;
-import java.text.SimpleDateFormat;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.FileHandler;
 import java.util.logging.Logger;
 import java.util.logging.SimpleFormatter;
@@ -21,51 +31,125 @@ import java.util.logging.SimpleFormatter;
  */
 @WebService
 public class CenterServer implements ServerInterface {
-    private Map<Character, ArrayList<Record>> recordsMap;
-    private int recordID;
-    private static final Object lockID = new Object();
-    private static final Object lockCount = new Object();
+    private volatile RecordStore recordStore;
+    private RecordIDAllocator recordIDAllocator;
+    private WriteAheadLog writeAheadLog;
+    private ScheduledExecutorService snapshotScheduler;
+    private ScheduledExecutorService gossipScheduler;
+    private ScheduledExecutorService transferScheduler;
+    private TransferOutbox transferOutbox;
+    private IDBlockLeases idBlockLeases;
+    private ScheduledExecutorService replicationScheduler;
+    /**
+     * LSN of the primary's last change applied by this replica, -1 while the records must be copied again
+     */
+    private volatile long appliedLSN = -1;
+    private boolean caughtUp;
+    private final Object replicationProgress = new Object();
+    private Rebalancer rebalancer;
+    /**
+     * Record IDs held here, and the filter being rebuilt from the records, which receives the new IDs as well
+     */
+    private volatile RecordFilter recordFilter = new RecordFilter();
+    private volatile RecordFilter nextRecordFilter;
+    private final LongAdder removedSinceFilterBuilt = new LongAdder();
+    private final AtomicBoolean recordFilterChanged = new AtomicBoolean();
+    private long lastFilterShareNanos;
+    private final Map<Server_ID, RecordFilter> peerRecordFilters = new ConcurrentHashMap<>();
+    /**
+     * IDs of the latest transfers applied here, oldest first, so that each one is applied only once
+     * Rebuilt from the snapshot and the write-ahead log on restart
+     */
+    private final Map<String, Boolean> appliedTransfers = new LinkedHashMap<String, Boolean>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > Config.TRANSFER_DEDUP_SIZE;
+        }
+    };
+    /**
+     * IDs of the applied transfers whose records are not durable yet, guarded by appliedTransfers
+     */
+    private final Set<String> pendingTransfers = new HashSet<>();
+    private UDPListener udpListener;
+    private TCPListener tcpListener;
+    private PeerClient peerClient;
+    private long snapshotLSN;
     private Server_ID serverID;
-    private int recordsCount;
+    private volatile ClusterRecordCounts recordCounts;
+    private long lastGossipNanos;
     private int rmiPort;
     private int udpPort;
     private static final Logger LOGGER = Logger.getLogger(CenterServer.class.getName());
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern(Config.DATE_TIME_FORMAT);
+    private static final int RECORD_FIELDS = 8;
+    private static final int TRANSFER_FIELDS_PER_RECORD = 1 + RECORD_FIELDS;
+    private static final int REPLICATION_FIELDS_PER_ENTRY = 1 + RECORD_FIELDS;
+    /**
+     * Replies start with their value and the state of the sender's record counter, their data follows
+     */
+    private static final int REPLY_DATA_OFFSET = 5;
+    private static final String REPLICATED_PUT = "P";
+    private static final String REPLICATED_DELETE = "D";
 
     public CenterServer() {}
 
     public CenterServer(Server_ID serverID) throws IOException {
         super();
-        this.recordsMap = Collections.synchronizedMap(new HashMap<>());
+        this.recordStore = new RecordStore();
         this.serverID = serverID;
-        switch (serverID) {
-            case MTL:
-                recordID = 0;
-                break;
-            case LVL:
-                recordID = 1;
-                break;
-            case DDO:
-                recordID = 2;
-                break;
-        }
-        this.recordsCount = 0;
+        // Record IDs come from blocks leased by the coordinator of the cluster, which may be this center
+        this.recordIDAllocator = new RecordIDAllocator(serverID, this::leaseIDBlock);
+        this.recordCounts = new ClusterRecordCounts(serverID);
         this.rmiPort = Config.getRMIPortByServerID(serverID);
         this.udpPort = Config.getUDPPortByServerID(serverID);
 
         initiateLogger();
-        new Thread(
-                new Runnable() {
-                    @Override
-                    public void run() {
-                        startUDPServer();
-                    }
-                }
-        ).start();
+        if (serverID.isReplica()) {
+            // A replica copies the records of its primary, then follows its log, it never changes them itself
+            this.peerClient = new PeerClient(serverID, this::onPeerReply);
+            startReplication();
+            LOGGER.info("Server " + this.serverID + " starts");
+            return;
+        }
+        recover();
+        startSnapshotScheduler();
+        this.peerClient = new PeerClient(serverID, this::onPeerReply);
+        startUDPServer();
+        startTCPServer();
+        startGossip();
+        startTransferRetries();
+        this.rebalancer = new Rebalancer(serverID, recordStore, recordCounts, (recordIDs, remoteServerID) -> transferBatch(serverID.name(), recordIDs, remoteServerID).size());
+        if (Config.REBALANCE_ENABLED)
+            rebalancer.start();
         LOGGER.info("Server " + this.serverID + " starts");
     }
 
+    /**
+     * Stop the threads of this server, its log and outbox stay as they are for the next start
+     */
+    void shutdown() {
+        if (rebalancer != null)
+            rebalancer.stop();
+        for (ScheduledExecutorService scheduler : Arrays.asList(transferScheduler, gossipScheduler, snapshotScheduler, replicationScheduler)) {
+            if (scheduler != null)
+                scheduler.shutdownNow();
+        }
+        if (udpListener != null)
+            udpListener.stop();
+        if (tcpListener != null)
+            tcpListener.stop();
+        try {
+            if (peerClient != null)
+                peerClient.close();
+        } catch (IOException e) {
+            LOGGER.severe(e.getMessage());
+        }
+        recordIDAllocator.close();
+        LOGGER.info("Server " + this.serverID + " stops");
+    }
+
     public void setRecordID(int recordID) {
-        this.recordID = recordID;
+        this.recordIDAllocator.set(recordID);
     }
 
     public void setServerID(Server_ID serverID) {
@@ -81,9 +165,7 @@ public class CenterServer implements ServerInterface {
     }
 
     public int getRecordID() {
-        synchronized (lockID) {
-            return this.recordID;
-        }
+        return this.recordIDAllocator.peek();
     }
 
     public Server_ID getServerID() {
@@ -99,236 +181,269 @@ public class CenterServer implements ServerInterface {
     }
     @WebMethod
     public String createTRecord(String managerID, String firstName, String lastName, String address, String phone, String specialization, String location) {
+        if (isReadOnly(managerID))
+            return "";
         char lastNameInitial = Character.toUpperCase(lastName.charAt(0));
 
         /**
          * Generate the recordID for the new records
-         * Lock the recordID variable to prevent multiple threads
-         * from creating new records with the same recordID
+         * The allocator hands out each number once, even to concurrent threads
          */
-        String newRecordID;
-        synchronized (lockID) {
-            newRecordID = String.format(Config.TEACHER_RECORD_FORMAT, recordID);
-            recordID += 3;
+        int number = recordIDAllocator.next();
+        if (number < 0) {
+            LOGGER.info(String.format(Config.LOG_CREATE_RECORD_ID_FAIL, managerID, 1));
+            return "";
         }
+        String newRecordID = RecordIDAllocator.teacherRecordID(number);
 
         // Create new record
         TeacherRecord newRecord = new TeacherRecord(newRecordID, firstName, lastName, address, phone, specialization, location);
 
         /**
-         * Lock the corresponding ArrayList to the LastName's initial character
-         * Multiple threads can modify the same ArrayList safely
-         * Prevent unpredictable behaviors of ArrayList
+         * Lock the bucket of the LastName's initial character
+         * Writers of other initials are not blocked
          * Ensure recordCount is always true
          * Ensure server logs are updated and reflect server's activities correctly
          */
-        ArrayList<Record> recordsList = getRecordsList(lastNameInitial);
+        RecordStore.Bucket bucket = recordStore.getBucket(lastNameInitial);
 
-        synchronized (recordsList) {
-            // Add the new record to the list
-            recordsList.add(newRecord);
-            synchronized (lockCount) {
-                recordsCount++;
-            }
+        long lsn;
+        synchronized (bucket) {
+            // Add the new record to the bucket and the index, it is taken back if the log has failed
+            lsn = storeAndLog(newRecord);
+            if (lsn >= 0)
+                addToRecordFilter(newRecordID);
             LOGGER.info(String.format(Config.LOG_CREATE_TEACHER_RECORD, managerID, newRecordID, firstName, lastName, address, phone, specialization, location));
         }
 
+        // Wait for the log outside the lock, writers of the same bucket are not held up by the disk
+        if (!awaitDurable(newRecordID, lsn)) {
+            undo(newRecord, null);
+            return "";
+        }
         return newRecordID;
     }
     @WebMethod
     public String createSRecord(String managerID, String firstName, String lastName, String coursesRegistered, String status) {
+        if (isReadOnly(managerID))
+            return "";
         char lastNameInitial = Character.toUpperCase(lastName.charAt(0));
 
         /**
          * Generate the recordID for the new records
-         * Lock the recordID variable to prevent multiple threads
-         * from creating new records with the same recordID
+         * The allocator hands out each number once, even to concurrent threads
          */
-        String newRecordID;
-        synchronized (lockID) {
-            newRecordID = String.format(Config.STUDENT_RECORD_FORMAT, recordID);
-            recordID += 3;
+        int number = recordIDAllocator.next();
+        if (number < 0) {
+            LOGGER.info(String.format(Config.LOG_CREATE_RECORD_ID_FAIL, managerID, 1));
+            return "";
         }
+        String newRecordID = RecordIDAllocator.studentRecordID(number);
 
         // Create new record
-        StudentRecord newRecord = new StudentRecord(newRecordID, firstName, lastName, coursesRegistered, status, new SimpleDateFormat(Config.DATE_TIME_FORMAT).format(new Date()));
+        StudentRecord newRecord = new StudentRecord(newRecordID, firstName, lastName, coursesRegistered, status, LocalDateTime.now().format(DATE_TIME_FORMATTER));
 
         /**
-         * Lock the corresponding ArrayList to the LastName's initial character
-         * Multiple threads can modify the same ArrayList safely
-         * Prevent unpredictable behaviors of ArrayList
+         * Lock the bucket of the LastName's initial character
+         * Writers of other initials are not blocked
          * Ensure recordCount is always true
          * Ensure server logs are updated and reflect server's activities correctly
          */
-        ArrayList<Record> recordsList = getRecordsList(lastNameInitial);
+        RecordStore.Bucket bucket = recordStore.getBucket(lastNameInitial);
 
-        synchronized (recordsList) {
-            // Add the new record to the list
-            recordsList.add(newRecord);
-            synchronized (lockCount) {
-                recordsCount++;
-            }
+        long lsn;
+        synchronized (bucket) {
+            // Add the new record to the bucket and the index, it is taken back if the log has failed
+            lsn = storeAndLog(newRecord);
+            if (lsn >= 0)
+                addToRecordFilter(newRecordID);
             LOGGER.info(String.format(Config.LOG_CREATE_STUDENT_RECORD, managerID, newRecordID, firstName, lastName, newRecord.getCoursesRegistered(), status));
         }
 
+        // Wait for the log outside the lock, writers of the same bucket are not held up by the disk
+        if (!awaitDurable(newRecordID, lsn)) {
+            undo(newRecord, null);
+            return "";
+        }
         return newRecordID;
     }
     @WebMethod
-    public String getRecordCounts(String managerID) {
-        DatagramSocket socket = null;
-        String result = String.format("%s %d", serverID, getRecordsNumber());
-        try {
-            for (Server_ID id : Server_ID.values()) {
-                if (id != serverID) {
-                    socket = new DatagramSocket();
-                    byte[] request = Config.FUNC_GET_RECORDS_NUMBER.getBytes();
-                    InetAddress host = InetAddress.getByName(Config.getHostnameByServerID(id));
-                    DatagramPacket sentPacket = new DatagramPacket(request, Config.FUNC_GET_RECORDS_NUMBER.length(), host, Config.getUDPPortByServerID(id));
-                    socket.send(sentPacket);
-
-                    byte[] response = new byte[1000];
-                    DatagramPacket receivedPacket = new DatagramPacket(response, response.length);
-                    socket.receive(receivedPacket);
-                    result += String.format(", %s %s", id, new String(receivedPacket.getData()).trim());
-                }
-            }
+    public String[] createTRecords(String managerID, String[] firstNames, String[] lastNames, String[] addresses, String[] phones, String[] specializations, String[] locations) {
+        if (isReadOnly(managerID))
+            return new String[0];
+        int count = batchSize(lastNames, firstNames, addresses, phones, specializations, locations);
+        if (count < 0) {
+            LOGGER.info(String.format(Config.LOG_CREATE_RECORDS_FAIL, managerID, lastNames == null ? 0 : lastNames.length));
+            return new String[0];
+        }
+        if (count == 0)
+            return new String[0];
 
-            LOGGER.info(String.format(Config.LOG_RECORDS_COUNT, managerID, result));
-        } catch (Exception e) {
-            LOGGER.severe(e.getMessage());
-            System.out.println(e.getMessage());
-        } finally {
-            if (socket != null)
-                socket.close();
+        /**
+         * Reserve the recordIDs of the whole batch with a single allocation
+         * IDs are returned in the order of the payloads
+         */
+        int[] numbers = recordIDAllocator.reserve(count);
+        if (numbers == null) {
+            LOGGER.info(String.format(Config.LOG_CREATE_RECORD_ID_FAIL, managerID, count));
+            return new String[0];
         }
-        return result;
+        Record[] newRecords = new Record[count];
+        String[] newRecordIDs = new String[count];
+        for (int i = 0; i < count; i++) {
+            newRecordIDs[i] = RecordIDAllocator.teacherRecordID(numbers[i]);
+            newRecords[i] = new TeacherRecord(newRecordIDs[i], firstNames[i], lastNames[i], addresses[i], phones[i], specializations[i], locations[i]);
+        }
+
+        if (!awaitDurable(newRecordIDs[0], storeBatch(newRecords))) {
+            for (Record newRecord : newRecords)
+                undo(newRecord, null);
+            return new String[0];
+        }
+        LOGGER.info(String.format(Config.LOG_CREATE_TEACHER_RECORDS, managerID, count, newRecordIDs[0], newRecordIDs[count - 1]));
+        return newRecordIDs;
+    }
+    @WebMethod
+    public String[] createSRecords(String managerID, String[] firstNames, String[] lastNames, String[] coursesRegistered, String[] statuses) {
+        if (isReadOnly(managerID))
+            return new String[0];
+        int count = batchSize(lastNames, firstNames, coursesRegistered, statuses);
+        if (count < 0) {
+            LOGGER.info(String.format(Config.LOG_CREATE_RECORDS_FAIL, managerID, lastNames == null ? 0 : lastNames.length));
+            return new String[0];
+        }
+        if (count == 0)
+            return new String[0];
+
+        /**
+         * Reserve the recordIDs of the whole batch with a single allocation
+         * IDs are returned in the order of the payloads
+         */
+        int[] numbers = recordIDAllocator.reserve(count);
+        if (numbers == null) {
+            LOGGER.info(String.format(Config.LOG_CREATE_RECORD_ID_FAIL, managerID, count));
+            return new String[0];
+        }
+        String statusDate = LocalDateTime.now().format(DATE_TIME_FORMATTER);
+        Record[] newRecords = new Record[count];
+        String[] newRecordIDs = new String[count];
+        for (int i = 0; i < count; i++) {
+            newRecordIDs[i] = RecordIDAllocator.studentRecordID(numbers[i]);
+            newRecords[i] = new StudentRecord(newRecordIDs[i], firstNames[i], lastNames[i], coursesRegistered[i], statuses[i], statusDate);
+        }
+
+        if (!awaitDurable(newRecordIDs[0], storeBatch(newRecords))) {
+            for (Record newRecord : newRecords)
+                undo(newRecord, null);
+            return new String[0];
+        }
+        LOGGER.info(String.format(Config.LOG_CREATE_STUDENT_RECORDS, managerID, count, newRecordIDs[0], newRecordIDs[count - 1]));
+        return newRecordIDs;
+    }
+    @WebMethod
+    public String getRecordCounts(String managerID) {
+        /**
+         * Answer from the counts gossiped by the other servers
+         * Only the servers not heard from within the staleness bound are asked again
+         */
+        return countRecords(managerID, Config.RECORD_COUNTS_MAX_STALENESS_MILLIS);
+    }
+
+    @WebMethod
+    public String getExactRecordCounts(String managerID) {
+        return countRecords(managerID, -1);
     }
     @WebMethod
     public boolean editRecord(String managerID, String recordID, String fieldName, String newValue) {
+        if (isReadOnly(managerID))
+            return false;
         Record recordFound = locateRecord(recordID);
-        char lastNameInitial = Character.toUpperCase(recordFound.getLastName().charAt(0));
-        ArrayList<Record> recordsList = getRecordsList(lastNameInitial);
-
-        synchronized (recordsList) {
-            for (ArrayList<Record> list : recordsMap.values()) {
-                Iterator<Record> iterator = list.iterator();
-                while (iterator.hasNext()) {
-                    recordFound = iterator.next();
-                    System.out.println("Considering recordID = " + recordFound.getRecordID() + " vs " + recordID);
-                    if (recordFound.getRecordID().compareTo(recordID) == 0) {
-                        System.out.println(recordFound.getRecordID() + " will be edited");
-                        if (recordFound.getRecordType().equals(Record.Record_Type.TEACHER)) {
-                            TeacherRecord teacherRecord = (TeacherRecord) recordFound;
-                            for (TeacherRecord.Mutable_Fields field : TeacherRecord.Mutable_Fields.values()) {
-                                if (fieldName.compareTo(field.name()) == 0) try {
-                                    Class<?> c = teacherRecord.getClass();
-                                    Field f = c.getDeclaredField(fieldName);
-                                    f.setAccessible(true);
-                                    f.set(teacherRecord, newValue);
-                                    f.setAccessible(false);
-                                } catch (Exception e) {
-                                    LOGGER.severe(e.getMessage());
-                                    System.out.println(e.getMessage());
-                                    e.printStackTrace();
-                                }
-                            }
-                        } else { // Record_Type == STUDENT
-                            StudentRecord studentRecord = (StudentRecord) recordFound;
-                            for (StudentRecord.Mutable_Fields field : StudentRecord.Mutable_Fields.values()) {
-                                if (fieldName.compareTo(field.name()) == 0) try {
-                                    Class<?> c = studentRecord.getClass();
-                                    Field whicheverField = c.getDeclaredField(fieldName);
-                                    whicheverField.setAccessible(true);
-                                    whicheverField.set(studentRecord, newValue);
-                                    whicheverField.setAccessible(false);
-                                    if (field == StudentRecord.Mutable_Fields.status) {
-                                        Field statusDateField = c.getDeclaredField(StudentRecord.Mutable_Fields.statusDate.name());
-                                        statusDateField.setAccessible(true);
-                                        statusDateField.set(studentRecord, new SimpleDateFormat(Config.DATE_TIME_FORMAT).format(new Date()));
-                                        statusDateField.setAccessible(false);
-                                    }
-                                } catch (Exception e) {
-                                    LOGGER.severe(e.getMessage());
-                                    System.out.println(e.getMessage());
-                                    e.printStackTrace();
-                                }
-                            }
-                        }
-                        // Logging
-                        LOGGER.info(String.format(Config.LOG_MODIFIED_RECORD_SUCCESS, managerID, recordID, fieldName, newValue));
-                        return true;
-                    }
-                }
-            }
+        if (recordFound == null) {
             LOGGER.info(String.format(Config.LOG_MODIFIED_RECORD_FAILED, managerID, recordID, fieldName, newValue));
             return false;
         }
-    }
-    @WebMethod
-    public boolean transferRecord(String managerID, String recordID, String remoteCenterServerName) {
-        if (remoteCenterServerName.compareTo(this.serverID.name()) != 0) {
-            String result = "";
-            Record recordFound = locateRecord(recordID);
-            char lastNameInitial = Character.toUpperCase(recordFound.getLastName().charAt(0));
-            ArrayList<Record> recordsList = getRecordsList(lastNameInitial);
-
-            synchronized (recordsList) {
-                // Create the same record on another server via UDP
-                DatagramSocket socket = null;
-                try {
-                    socket = new DatagramSocket();
-                    String requestContent = "";
-                    Server_ID serverID = Config.Server_ID.valueOf(remoteCenterServerName);
-                    InetAddress host = InetAddress.getByName(Config.getHostnameByServerID(serverID));
-                    if (recordFound.getRecordType() == Record.Record_Type.TEACHER) {
-                        TeacherRecord teacherRecord = (TeacherRecord) recordFound;
-                        requestContent = Config.FUNC_TRANSFER_TEACHER_RECORD + "|" + managerID + "|" + recordID + "|" + teacherRecord.getFirstName() + "|" + teacherRecord.getLastName()
-                                + "|" + teacherRecord.getAddress() + "|" + teacherRecord.getPhone() + "|" + teacherRecord.getSpecialization() + "|" + teacherRecord.getLocation();
-                    } else {
-                        StudentRecord studentRecord = (StudentRecord) recordFound;
-                        requestContent += Config.FUNC_TRANSFER_STUDENT_RECORD + "|" + managerID + "|" + recordID + "|" + studentRecord.getFirstName() + "|" + studentRecord.getLastName()
-                                + "|" + studentRecord.getCoursesRegistered() + "|" + studentRecord.getStatus() + "|" + studentRecord.getStatusDate();
-                    }
 
-                    byte[] request = requestContent.getBytes();
-                    DatagramPacket sentPacket = new DatagramPacket(request, requestContent.length(), host, Config.getUDPPortByServerID(serverID));
-                    socket.send(sentPacket);
-
-                    byte[] response = new byte[1000];
-                    DatagramPacket receivedPacket = new DatagramPacket(response, response.length);
-                    socket.receive(receivedPacket);
-                    result = new String(receivedPacket.getData()).trim();
-                } catch (Exception e) {
-                    LOGGER.severe(e.getMessage());
-                    System.out.println(e.getMessage());
-                } finally {
-                    if (socket != null)
-                        socket.close();
-                }
+        /**
+         * Resolve the field before taking any lock
+         * Unknown field names are rejected without touching the record
+         */
+        TeacherRecord.Mutable_Fields teacherField = null;
+        StudentRecord.Mutable_Fields studentField = null;
+        String statusDate = null;
+        if (recordFound.getRecordType() == Record.Record_Type.TEACHER) {
+            teacherField = TeacherRecord.Mutable_Fields.fromName(fieldName);
+        } else { // Record_Type == STUDENT
+            studentField = StudentRecord.Mutable_Fields.fromName(fieldName);
+            if (studentField == StudentRecord.Mutable_Fields.status)
+                statusDate = LocalDateTime.now().format(DATE_TIME_FORMATTER);
+        }
+        if (teacherField == null && studentField == null) {
+            LOGGER.info(String.format(Config.LOG_MODIFIED_RECORD_FAILED, managerID, recordID, fieldName, newValue));
+            return false;
+        }
 
-                // If success, delete the record on this server
-                if (result.compareTo(recordID) == 0) {
-                    synchronized (lockCount) {
-                        recordsList.remove(recordFound);
-                        recordsCount--;
-                        LOGGER.info(String.format(Config.LOG_TRANSFER_RECORD_SUCCESS, managerID, recordID, remoteCenterServerName));
-                    }
-                    return true;
-                }
-                else {
-                    LOGGER.info(String.format(Config.LOG_TRANSFER_RECORD_FAIL, managerID, recordID, remoteCenterServerName));
-                    return false;
-                }
+        RecordStore.Bucket bucket = recordStore.getBucket(recordFound);
+
+        long lsn;
+        Record editedRecord;
+        synchronized (bucket) {
+            /**
+             * The record could have been transferred away before the lock was acquired, or be in flight
+             * It is located again rather than compared with the one found above: every edit stores a new version,
+             * so a record edited in between is a different instance but must still be edited
+             */
+            recordFound = locateRecord(recordID);
+            if (recordFound == null || transferOutbox.isInFlight(recordID)) {
+                LOGGER.info(String.format(Config.LOG_MODIFIED_RECORD_FAILED, managerID, recordID, fieldName, newValue));
+                return false;
+            }
+            // Stored records are never modified in place, so concurrent readers and snapshots stay consistent
+            editedRecord = recordFound.copy();
+            if (teacherField != null) {
+                teacherField.set((TeacherRecord) editedRecord, newValue);
+            } else {
+                studentField.set((StudentRecord) editedRecord, newValue);
+                if (statusDate != null)
+                    ((StudentRecord) editedRecord).setStatusDate(statusDate);
             }
+            lsn = storeAndLog(editedRecord);
+            // Logging
+            if (lsn >= 0)
+                LOGGER.info(String.format(Config.LOG_MODIFIED_RECORD_SUCCESS, managerID, recordID, fieldName, newValue));
+        }
+
+        if (!awaitDurable(recordID, lsn)) {
+            undo(editedRecord, recordFound);
+            return false;
         }
-        else {
+        return true;
+    }
+    @WebMethod
+    public boolean transferRecord(String managerID, String recordID, String remoteCenterServerName) {
+        if (isReadOnly(managerID))
+            return false;
+        /**
+         * Freeze the record, ship it, then delete it once the remote server has confirmed it
+         * No lock is held while waiting for the remote server
+         * Return false if the record is not transferred yet, a record that was shipped keeps being
+         * shipped in the background until the remote server confirms it
+         */
+        Server_ID remoteServerID = remoteServerOf(remoteCenterServerName);
+        if (remoteServerID == null || recordID == null) {
             LOGGER.info(String.format(Config.LOG_TRANSFER_RECORD_FAIL, managerID, recordID, remoteCenterServerName));
             return false;
         }
+
+        boolean isTransferred = transferBatch(managerID, Collections.singletonList(recordID), remoteServerID).contains(recordID);
+        if (isTransferred)
+            LOGGER.info(String.format(Config.LOG_TRANSFER_RECORD_SUCCESS, managerID, recordID, remoteCenterServerName));
+        else
+            LOGGER.info(String.format(Config.LOG_TRANSFER_RECORD_FAIL, managerID, recordID, remoteCenterServerName));
+        return isTransferred;
     }
     @WebMethod
     public String getRecordType(String recordID) {
-        if (recordID.length() == 7) {
+        if (RecordIndex.keyOf(recordID) >= 0) {
             String recordPrefix = recordID.substring(0, 2);
             if (recordPrefix.compareTo("TR") == 0)
                 return Record.Record_Type.TEACHER.name();
@@ -342,153 +457,1078 @@ public class CenterServer implements ServerInterface {
     }
     @WebMethod
     public String printAllRecords() {
-        String result = "";
-        synchronized (recordsMap) {
-            for (ArrayList<Record> recordsList : this.recordsMap.values()) {
-                for (int i = 0; i < recordsList.size(); i++) {
-                    if (recordsList.get(i).getRecordType() == Record.Record_Type.TEACHER) {
-                        TeacherRecord teacherRecord = (TeacherRecord) recordsList.get(i);
-                        result += i + " " + String.format(Config.PRINT_TEACHER_RECORD, teacherRecord.getRecordID(), teacherRecord.getFirstName(), teacherRecord.getLastName(), teacherRecord.getAddress(), teacherRecord.getPhone(), teacherRecord.getSpecialization(), teacherRecord.getLocation());
-                        result += System.lineSeparator();
-                    } else {
-                        StudentRecord studentRecord = (StudentRecord) recordsList.get(i);
-                        result += i + " " + String.format(Config.PRINT_STUDENT_RECORD, studentRecord.getRecordID(), studentRecord.getFirstName(), studentRecord.getLastName(), studentRecord.getCoursesRegistered(), studentRecord.getStatus(), studentRecord.getStatusDate());
-                        result += System.lineSeparator();
-                    }
+        StringBuilder result = new StringBuilder();
+        /**
+         * Read a point-in-time snapshot of the records
+         * Writers keep creating, editing and transferring records while the dump is built
+         */
+        try (RecordStore.Snapshot snapshot = recordStore.snapshot()) {
+            for (RecordStore.Bucket bucket : snapshot.buckets()) {
+                int i = 0;
+                for (Record record : snapshot.records(bucket)) {
+                    result.append(i).append(' ').append(formatRecord(record)).append(System.lineSeparator());
+                    i++;
                 }
             }
         }
-        return result;
+        return result.toString();
     }
     @WebMethod
-    public String printRecords(String managerID, String recordID) {
-//        Record record = locateRecord(recordID);
-
-//        Map<Character, ArrayList<Record>> map = Collections.synchronizedMap(recordsMap);
-        synchronized (recordsMap) {
-            for (ArrayList<Record> recordsList : recordsMap.values()) {
-                Iterator<Record> iterator = recordsList.iterator();
-                while (iterator.hasNext()) {
-                    Record recordFound = iterator.next();
-                    if (recordFound.getRecordID().compareTo(recordID) == 0) {
-                        if (recordFound.getRecordType() == Record.Record_Type.TEACHER) {
-                            TeacherRecord teacherRecord = (TeacherRecord) recordFound;
-                            return String.format(Config.PRINT_TEACHER_RECORD, recordID, teacherRecord.getFirstName(), teacherRecord.getLastName(), teacherRecord.getAddress(), teacherRecord.getPhone(), teacherRecord.getSpecialization(), teacherRecord.getLocation());
-                        } else {
-                            StudentRecord studentRecord = (StudentRecord) recordFound;
-                            return String.format(Config.PRINT_STUDENT_RECORD, recordID, studentRecord.getFirstName(), studentRecord.getLastName(), studentRecord.getCoursesRegistered(), studentRecord.getStatus(), studentRecord.getStatusDate());
-                        }
-                    }
+    public String[] transferRecords(String managerID, String[] recordIDs, String remoteCenterServerName) {
+        if (isReadOnly(managerID))
+            return new String[0];
+        /**
+         * Result i is recordIDs[i] if it was transferred, "" otherwise
+         */
+        String[] results = new String[recordIDs == null ? 0 : recordIDs.length];
+        Arrays.fill(results, "");
+        Server_ID remoteServerID = remoteServerOf(remoteCenterServerName);
+        if (remoteServerID == null || results.length == 0) {
+            LOGGER.info(String.format(Config.LOG_TRANSFER_RECORDS, managerID, 0, results.length, remoteCenterServerName));
+            return results;
+        }
+
+        List<String> found = new ArrayList<>(results.length);
+        for (String recordID : recordIDs) {
+            if (recordID != null)
+                found.add(recordID);
+        }
+        Set<String> transferred = transferBatch(managerID, found, remoteServerID);
+        for (int i = 0; i < results.length; i++) {
+            if (transferred.contains(recordIDs[i]))
+                results[i] = recordIDs[i];
+        }
+        LOGGER.info(String.format(Config.LOG_TRANSFER_RECORDS, managerID, transferred.size(), results.length, remoteCenterServerName));
+        return results;
+    }
+
+    @WebMethod
+    public String[] transferMatchingRecords(String managerID, String fieldName, String value, String remoteCenterServerName) {
+        if (isReadOnly(managerID))
+            return new String[0];
+        /**
+         * Transfer every record whose indexed field has the value, or every record of the server if fieldName is empty
+         * Return the recordIDs that were transferred
+         */
+        Server_ID remoteServerID = remoteServerOf(remoteCenterServerName);
+        SecondaryIndex.Indexed_Fields field = fieldName == null || fieldName.isEmpty() ? null : SecondaryIndex.fieldOf(fieldName);
+        if (remoteServerID == null || (field == null && fieldName != null && !fieldName.isEmpty()) || (field != null && value == null)) {
+            LOGGER.info(String.format(Config.LOG_TRANSFER_RECORDS, managerID, 0, 0, remoteCenterServerName));
+            return new String[0];
+        }
+
+        List<String> recordIDs = new ArrayList<>();
+        if (field != null) {
+            for (Record record : recordStore.find(field, value, Integer.MAX_VALUE))
+                recordIDs.add(record.getRecordID());
+        } else {
+            try (RecordStore.Snapshot snapshot = recordStore.snapshot()) {
+                for (RecordStore.Bucket bucket : snapshot.buckets()) {
+                    for (Record record : snapshot.records(bucket))
+                        recordIDs.add(record.getRecordID());
                 }
             }
         }
+        Set<String> transferred = transferBatch(managerID, recordIDs, remoteServerID);
+        LOGGER.info(String.format(Config.LOG_TRANSFER_RECORDS, managerID, transferred.size(), recordIDs.size(), remoteCenterServerName));
+        return transferred.toArray(new String[0]);
+    }
+
+    @WebMethod
+    public String getRebalanceStatus(String managerID) {
+        return rebalancer == null ? "" : rebalancer.getStatus();
+    }
+
+    @WebMethod
+    public String printRecordsPage(String cursor, int pageSize) {
+        /**
+         * Records are returned in ascending recordID order
+         * The cursor is the position after the last record of the previous page,
+         * so records created or transferred between two pages never shift the pages already read
+         */
+        int afterKey = -1;
+        if (cursor != null && !cursor.isEmpty()) {
+            try {
+                afterKey = Integer.parseInt(cursor, Character.MAX_RADIX);
+            } catch (NumberFormatException e) {
+                return "";
+            }
+        }
+        if (pageSize <= 0)
+            pageSize = Config.PAGE_SIZE;
+        pageSize = Math.min(pageSize, Config.MAX_PAGE_SIZE);
+
+        StringBuilder page = new StringBuilder();
+        String nextCursor = "";
+        try (RecordStore.Snapshot snapshot = recordStore.snapshot()) {
+            Iterator<Record> records = snapshot.recordsAfter(afterKey);
+            Record lastRecord = null;
+            for (int i = 0; i < pageSize && records.hasNext(); i++) {
+                lastRecord = records.next();
+                page.append(formatRecord(lastRecord)).append(System.lineSeparator());
+            }
+            if (records.hasNext())
+                nextCursor = Integer.toString(RecordIndex.keyOf(lastRecord.getRecordID()), Character.MAX_RADIX);
+        }
+        return nextCursor + Config.PAGE_CURSOR_DELIMITER + page;
+    }
+    @WebMethod
+    public String queryRecords(String managerID, String fieldName, String value, int maxResults) {
+        /**
+         * Answer from the secondary indexes instead of scanning every record
+         */
+        SecondaryIndex.Indexed_Fields field = SecondaryIndex.fieldOf(fieldName);
+        if (field == null || value == null) {
+            LOGGER.info(String.format(Config.LOG_QUERY_RECORDS_FAIL, managerID, fieldName));
+            return "";
+        }
+        if (maxResults <= 0)
+            maxResults = Config.MAX_QUERY_RESULTS;
+        maxResults = Math.min(maxResults, Config.MAX_QUERY_RESULTS);
+
+        StringBuilder result = new StringBuilder();
+        List<Record> records = recordStore.find(field, value, maxResults);
+        for (Record record : records)
+            result.append(formatRecord(record)).append(System.lineSeparator());
+        LOGGER.info(String.format(Config.LOG_QUERY_RECORDS, managerID, fieldName, value, records.size()));
+        return result.toString();
+    }
+    /**
+     * Look the record up in every center at once, so that managers need not know where it was transferred
+     * Return it prefixed with its center as soon as one center has it, or "" if none has it
+     */
+    @WebMethod
+    public String findRecord(String managerID, String recordID) {
+        Server_ID self = ownNode();
+        Record recordFound = locateRecord(recordID);
+        String found = recordFound == null ? "" : String.format(Config.CLUSTER_RECORD, self.getCenter(), formatRecord(recordFound));
+        if (found.isEmpty() && recordID != null && RecordIndex.keyOf(recordID) >= 0) {
+            /**
+             * Ask the servers whose record filter may hold the record first, usually only its owner
+             * A filter only rules records out as of the moment it was shared: a record created or transferred
+             * there since is missed, so the other servers are always asked next when the first ones miss
+             */
+            List<Server_ID> likely = new ArrayList<>();
+            List<Server_ID> others = new ArrayList<>();
+            for (Server_ID id : Server_ID.values()) {
+                if (id == self)
+                    continue;
+                RecordFilter filter = peerRecordFilters.get(id);
+                if (filter == null || filter.mightContain(recordID))
+                    likely.add(id);
+                else
+                    others.add(id);
+            }
+            found = findRecordAt(likely, recordID);
+            if (found.isEmpty() && !others.isEmpty())
+                found = findRecordAt(others, recordID);
+        }
+        LOGGER.info(String.format(Config.LOG_FIND_RECORD, managerID, recordID, found.isEmpty() ? "not found" : found));
+        return found;
+    }
+
+    /**
+     * Ask the servers at once, return the record prefixed with its center as soon as one has it, or ""
+     */
+    private String findRecordAt(List<Server_ID> ids, String recordID) {
+        if (ids.isEmpty())
+            return "";
+        CompletableFuture<String> first = new CompletableFuture<>();
+        List<CompletableFuture<Void>> replies = new ArrayList<>();
+        for (Server_ID id : ids) {
+            replies.add(peerClient.exchange(id, Config.PEER_TIMEOUT_MILLIS, Config.PEER_ATTEMPTS, PeerMessage.Message_Type.FIND_RECORD, recordID).thenAccept(reply -> {
+                String record = reply.getField(0);
+                if (record != null && !record.isEmpty())
+                    first.complete(String.format(Config.CLUSTER_RECORD, id.getCenter(), record));
+            }));
+        }
+        CompletableFuture.allOf(replies.toArray(new CompletableFuture<?>[0])).whenComplete((done, failure) -> first.complete(""));
+        return awaitCluster(first, "");
+    }
+
+    /**
+     * Query every center at once, each one filters its records with its own secondary indexes
+     * Results are merged as the replies come in, the call returns once maxResults records are gathered,
+     * every server has answered, or Config.CLUSTER_QUERY_TIMEOUT_MILLIS has passed
+     */
+    @WebMethod
+    public String queryCluster(String managerID, String fieldName, String value, int maxResults) {
+        SecondaryIndex.Indexed_Fields field = SecondaryIndex.fieldOf(fieldName);
+        if (field == null || value == null) {
+            LOGGER.info(String.format(Config.LOG_QUERY_RECORDS_FAIL, managerID, fieldName));
+            return "";
+        }
+        if (maxResults <= 0)
+            maxResults = Config.MAX_QUERY_RESULTS;
+        int limit = Math.min(maxResults, Config.MAX_QUERY_RESULTS);
+
+        Server_ID self = ownNode();
+        List<String> lines = new ArrayList<>(limit);
+        for (Record record : recordStore.find(field, value, limit))
+            lines.add(String.format(Config.CLUSTER_RECORD, self.getCenter(), formatRecord(record)));
+        int[] answered = {1};
+        int servers = 1;
+        CompletableFuture<Void> enough = new CompletableFuture<>();
+        List<CompletableFuture<Void>> replies = new ArrayList<>();
+        if (lines.size() < limit) {
+            for (Server_ID id : Server_ID.values()) {
+                if (id == self)
+                    continue;
+                servers++;
+                replies.add(peerClient.exchange(id, Config.PEER_TIMEOUT_MILLIS, Config.PEER_ATTEMPTS, PeerMessage.Message_Type.QUERY_RECORDS, field.name(), value, Integer.toString(limit)).thenAccept(reply -> {
+                    synchronized (lines) {
+                        answered[0]++;
+                        for (int i = REPLY_DATA_OFFSET; i < reply.getFieldCount() && lines.size() < limit; i++)
+                            lines.add(String.format(Config.CLUSTER_RECORD, id.getCenter(), reply.getField(i)));
+                        if (lines.size() >= limit)
+                            enough.complete(null);
+                    }
+                }));
+            }
+        }
+        CompletableFuture.allOf(replies.toArray(new CompletableFuture<?>[0])).whenComplete((done, failure) -> enough.complete(null));
+        awaitCluster(enough, null);
+
+        StringBuilder result = new StringBuilder();
+        int count;
+        synchronized (lines) {
+            count = lines.size();
+            for (String line : lines)
+                result.append(line).append(System.lineSeparator());
+            LOGGER.info(String.format(Config.LOG_CLUSTER_QUERY, managerID, fieldName, value, count, answered[0], servers));
+        }
+        return result.toString();
+    }
+
+    /**
+     * Wait up to Config.CLUSTER_QUERY_TIMEOUT_MILLIS for the answer of the cluster, return otherwise if it does not come
+     */
+    private static <T> T awaitCluster(CompletableFuture<T> answer, T otherwise) {
+        try {
+            return answer.get(Config.CLUSTER_QUERY_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            return otherwise;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return otherwise;
+        }
+    }
+
+    @WebMethod
+    public String printRecords(String managerID, String recordID) {
+        Record recordFound = locateRecord(recordID);
+        if (recordFound != null)
+            return formatRecord(recordFound);
         return "";
     }
 
+    /**
+     * Position of the manager's session in the log of the center
+     * A replica answering a read with this token has applied every change the manager made before asking for it
+     */
+    @WebMethod
+    public String getSessionToken(String managerID) {
+        if (serverID.isReplica())
+            return Long.toString(appliedLSN);
+        return writeAheadLog == null ? "" : Long.toString(writeAheadLog.getAppendedLSN());
+    }
+
+    @WebMethod
+    public String printRecordsInSession(String managerID, String recordID, String sessionToken) {
+        if (!awaitSession(sessionToken))
+            return Config.REPLICA_BEHIND;
+        return printRecords(managerID, recordID);
+    }
+
+    @WebMethod
+    public String printAllRecordsInSession(String sessionToken) {
+        if (!awaitSession(sessionToken))
+            return Config.REPLICA_BEHIND;
+        return printAllRecords();
+    }
+
+    @WebMethod
+    public String printRecordsPageInSession(String cursor, int pageSize, String sessionToken) {
+        if (!awaitSession(sessionToken))
+            return Config.REPLICA_BEHIND;
+        return printRecordsPage(cursor, pageSize);
+    }
+
+    @WebMethod
+    public String getRecordCountsInSession(String managerID, String sessionToken) {
+        if (!awaitSession(sessionToken))
+            return Config.REPLICA_BEHIND;
+        return getRecordCounts(managerID);
+    }
+
+    private static String formatRecord(Record record) {
+        if (record.getRecordType() == Record.Record_Type.TEACHER) {
+            TeacherRecord teacherRecord = (TeacherRecord) record;
+            return String.format(Config.PRINT_TEACHER_RECORD, teacherRecord.getRecordID(), teacherRecord.getFirstName(), teacherRecord.getLastName(), teacherRecord.getAddress(), teacherRecord.getPhone(), teacherRecord.getSpecialization(), teacherRecord.getLocation());
+        } else {
+            StudentRecord studentRecord = (StudentRecord) record;
+            return String.format(Config.PRINT_STUDENT_RECORD, studentRecord.getRecordID(), studentRecord.getFirstName(), studentRecord.getLastName(), studentRecord.getCoursesRegistered(), studentRecord.getStatus(), studentRecord.getStatusDate());
+        }
+    }
+
     private void startUDPServer() {
-        DatagramSocket socket = null;
+        udpListener = new UDPListener(this.udpPort, Config.UDP_RECEIVERS, this::handlePeerRequest);
+        try {
+            udpListener.start();
+        } catch (IOException e) {
+            LOGGER.severe(e.getMessage());
+            System.out.println(e.getMessage());
+            udpListener.stop();
+        }
+    }
+
+    private void startTCPServer() {
+        tcpListener = new TCPListener(Config.getTCPPortByServerID(serverID), this::handlePeerRequest);
         try {
-            socket = new DatagramSocket(this.udpPort);
-            LOGGER.info(String.format(Config.LOG_UDP_SERVER_START, this.udpPort));
+            tcpListener.start();
+        } catch (IOException e) {
+            LOGGER.severe(e.getMessage());
+            System.out.println(e.getMessage());
+            tcpListener.stop();
+        }
+    }
 
+    /**
+     * Scatter the request to every other server whose gossiped count is older than maxStalenessMillis at once,
+     * then gather the replies until the deadline
+     * The call takes as long as the slowest server, a server that does not answer in time is marked unavailable
+     */
+    private String countRecords(String managerID, long maxStalenessMillis) {
+        Map<Server_ID, String> counts = new HashMap<>();
+        Map<Server_ID, CompletableFuture<String>> replies = new HashMap<>();
+        Server_ID self = ownNode();
+        for (Server_ID id : Server_ID.values()) {
+            if (id == self)
+                continue;
+            long count = maxStalenessMillis < 0 ? -1 : recordCounts.get(id, maxStalenessMillis);
+            if (count >= 0)
+                counts.put(id, Long.toString(count));
+            else
+                replies.put(id, peerClient.callAsync(id, Config.PEER_TIMEOUT_MILLIS, Config.PEER_ATTEMPTS, PeerMessage.Message_Type.GET_RECORDS_NUMBER));
+        }
+        if (!replies.isEmpty()) {
+            try {
+                CompletableFuture.allOf(replies.values().toArray(new CompletableFuture<?>[0])).get(Config.RECORD_COUNTS_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException | ExecutionException e) {
+                // Some servers failed or are late, they are reported as unavailable
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (Map.Entry<Server_ID, CompletableFuture<String>> reply : replies.entrySet()) {
+            String count = reply.getValue().isDone() && !reply.getValue().isCompletedExceptionally() ? reply.getValue().join() : Config.RECORD_COUNT_UNAVAILABLE;
+            counts.put(reply.getKey(), count);
+        }
+
+        // The count of a sharded center is the sum of its shards, unavailable if one of them is
+        counts.put(self, Integer.toString(getRecordsNumber()));
+        Server_ID ownCenter = self.getCenter();
+        StringBuilder result = new StringBuilder(String.format("%s %s", ownCenter, centerCount(ownCenter, counts)));
+        for (Server_ID center : Server_ID.centers()) {
+            if (center != ownCenter)
+                result.append(String.format(", %s %s", center, centerCount(center, counts)));
+        }
+        LOGGER.info(String.format(Config.LOG_RECORDS_COUNT, managerID, result));
+        return result.toString();
+    }
+
+    private static String centerCount(Server_ID center, Map<Server_ID, String> counts) {
+        long sum = 0;
+        for (Server_ID shard : center.getShards()) {
+            try {
+                sum += Long.parseLong(counts.get(shard));
+            } catch (NumberFormatException e) {
+                return Config.RECORD_COUNT_UNAVAILABLE;
+            }
+        }
+        return Long.toString(sum);
+    }
+
+    /**
+     * Requests from the other servers are handled by the workers of the UDP and TCP listeners,
+     * concurrently with each other and with the web methods
+     */
+    private ByteBuffer handlePeerRequest(ByteBuffer buffer) {
+        PeerMessage request;
+        try {
+            request = PeerMessage.decode(buffer);
+        } catch (PeerMessage.MalformedMessageException e) {
+            LOGGER.severe(e.getMessage());
+            buffer.limit(0);
+            return buffer;
+        }
+
+        String replyStr = "-1";
+        List<String> replyData = new ArrayList<>();
+        switch (request.getType()) {
+            case GOSSIP_RECORD_COUNTS:
+                // One-way message, there is no reply
+                recordCounts.merge(request, 0);
+                buffer.limit(0);
+                return buffer;
+            case GET_RECORDS_NUMBER:
+                replyStr = Integer.toString(getRecordsNumber());
+                break;
+            case GET_RECORD_ID:
+                replyStr = Integer.toString(getRecordID());
+                break;
+            case TRANSFER_RECORDS:
+                replyStr = receiveRecords(request);
+                break;
+            case LEASE_ID_BLOCK:
+                replyStr = request.getFieldCount() == 1 ? Integer.toString(grantIDBlock(request.getField(0))) : "-1";
+                break;
+            case PULL_CHANGES:
+                replyStr = request.getFieldCount() == 1 ? pullChanges(request.getField(0), replyData) : "-1";
+                break;
+            case PULL_SNAPSHOT:
+                replyStr = request.getFieldCount() == 1 ? pullSnapshot(request.getField(0), replyData) : "-1";
+                break;
+            case FIND_RECORD:
+                Record recordFound = request.getFieldCount() == 1 ? locateRecord(request.getField(0)) : null;
+                replyStr = recordFound == null ? "" : formatRecord(recordFound);
+                break;
+            case QUERY_RECORDS:
+                replyStr = request.getFieldCount() == 3 ? queryForPeer(request, replyData) : "-1";
+                break;
+            case SHARE_RECORD_FILTER:
+                // One-way message, there is no reply
+                receiveRecordFilter(request);
+                buffer.limit(0);
+                return buffer;
+        }
+
+        // Reply with the same correlation ID, in the buffer the request came in unless the reply does not fit in it
+        // The state of the local record counter rides along with every reply
+        String[] counterState = recordCounts.getLocalState();
+        String[] replyFields = new String[1 + counterState.length + replyData.size()];
+        replyFields[0] = replyStr;
+        System.arraycopy(counterState, 0, replyFields, 1, counterState.length);
+        for (int i = 0; i < replyData.size(); i++)
+            replyFields[REPLY_DATA_OFFSET + i] = replyData.get(i);
+        int replyLength = PeerMessage.messageLength(replyFields);
+        int maxLength = request.getType().getMaxSize();
+        ByteBuffer reply = buffer;
+        if (buffer.capacity() < Math.min(replyLength, maxLength))
+            reply = ByteBuffer.allocate(Math.min(replyLength, maxLength));
+        reply.clear();
+        try {
+            if (replyLength <= maxLength) {
+                PeerMessage.encode(reply, PeerMessage.Message_Type.REPLY, request.getCorrelationID(), replyFields);
+            } else {
+                // Tell the caller instead of leaving it to time out, the request buffer holds the short message
+                LOGGER.severe(String.format(Config.LOG_PEER_REPLY_TOO_LARGE, serverID, request.getType(), replyLength, maxLength));
+                PeerMessage.encode(reply, PeerMessage.Message_Type.REPLY_TOO_LARGE, request.getCorrelationID(), Integer.toString(replyLength));
+            }
+        } catch (PeerMessage.MalformedMessageException e) {
+            LOGGER.severe(e.getMessage());
+        }
+        reply.flip();
+        return reply;
+    }
+
+    /**
+     * Durable log entries after the LSN of the replica, as many as fit in a reply
+     * Return the LSN of the last entry, or -1 if the replica must copy the records again
+     */
+    private String pullChanges(String afterLSN, List<String> replyData) {
+        List<WriteAheadLog.Entry> entries;
+        try {
+            entries = writeAheadLog == null ? null : writeAheadLog.entriesAfter(Long.parseLong(afterLSN), Config.REPLICATION_BATCH_SIZE);
+        } catch (NumberFormatException e) {
+            entries = null;
+        }
+        if (entries == null)
+            return "-1";
+
+        int size = PeerMessage.HEADER_SIZE + REPLY_DATA_OFFSET * PeerMessage.encodedLength(Long.toString(Long.MAX_VALUE));
+        long lsn = Long.parseLong(afterLSN);
+        for (WriteAheadLog.Entry entry : entries) {
+            String[] fields = new String[REPLICATION_FIELDS_PER_ENTRY];
+            if (entry.operation != WriteAheadLog.Operation.DELETE) {
+                fields[0] = REPLICATED_PUT;
+                System.arraycopy(recordFields(entry.record), 0, fields, 1, RECORD_FIELDS);
+            } else {
+                fields[0] = REPLICATED_DELETE;
+                fields[1] = entry.recordID;
+            }
+            for (String field : fields)
+                size += PeerMessage.encodedLength(field);
+            if (size > PeerMessage.Message_Type.PULL_CHANGES.getMaxSize())
+                break;
+            replyData.addAll(Arrays.asList(fields));
+            lsn++;
+        }
+        return Long.toString(lsn);
+    }
+
+    /**
+     * Records of this server matching the filter of a cluster query, as many as fit in a reply
+     * Return how many there are, or -1 if the filter is not valid
+     */
+    private String queryForPeer(PeerMessage request, List<String> replyData) {
+        SecondaryIndex.Indexed_Fields field = SecondaryIndex.fieldOf(request.getField(0));
+        String value = request.getField(1);
+        int limit;
+        try {
+            limit = Math.min(Integer.parseInt(request.getField(2)), Config.MAX_QUERY_RESULTS);
+        } catch (NumberFormatException e) {
+            return "-1";
+        }
+        if (field == null || value == null)
+            return "-1";
+
+        int size = PeerMessage.HEADER_SIZE + REPLY_DATA_OFFSET * PeerMessage.encodedLength(Long.toString(Long.MAX_VALUE));
+        for (Record record : recordStore.find(field, value, limit)) {
+            String line = formatRecord(record);
+            size += PeerMessage.encodedLength(line);
+            if (size > PeerMessage.Message_Type.QUERY_RECORDS.getMaxSize())
+                break;
+            replyData.add(line);
+        }
+        return Integer.toString(replyData.size());
+    }
+
+    /**
+     * Records after the cursor of the replica, as many as fit in a reply, from a snapshot of the store
+     * The data starts with the next cursor, empty after the last record
+     * Return the LSN the replica follows the log from once it has copied every record
+     */
+    private String pullSnapshot(String afterKey, List<String> replyData) {
+        if (writeAheadLog == null)
+            return "-1";
+        int cursor;
+        try {
+            cursor = afterKey.isEmpty() ? -1 : Integer.parseInt(afterKey);
+        } catch (NumberFormatException e) {
+            return "-1";
+        }
+
+        // Every change is applied to the store before it is logged, the snapshot holds every entry up to the LSN
+        long lsn = writeAheadLog.getAppendedLSN();
+        int size = PeerMessage.HEADER_SIZE + (REPLY_DATA_OFFSET + 1) * PeerMessage.encodedLength(Long.toString(Long.MAX_VALUE));
+        replyData.add("");
+        try (RecordStore.Snapshot snapshot = recordStore.snapshot()) {
+            Iterator<Record> records = snapshot.recordsAfter(cursor);
+            while (records.hasNext()) {
+                Record record = records.next();
+                String[] fields = recordFields(record);
+                for (String field : fields)
+                    size += PeerMessage.encodedLength(field);
+                if (size > PeerMessage.Message_Type.PULL_SNAPSHOT.getMaxSize() || replyData.size() > Config.REPLICATION_BATCH_SIZE * RECORD_FIELDS) {
+                    replyData.set(0, Integer.toString(cursor));
+                    break;
+                }
+                replyData.addAll(Arrays.asList(fields));
+                cursor = RecordIndex.keyOf(record.getRecordID());
+            }
+        }
+        return Long.toString(lsn);
+    }
+
+    /**
+     * Lease a block of record IDs above floor to this center, from the coordinator of the cluster
+     * Return its first number, or -1 if the coordinator cannot be reached
+     */
+    private int leaseIDBlock(int floor) {
+        Server_ID coordinator = Server_ID.getIDLeaseCoordinator();
+        int first = -1;
+        if (coordinator == serverID) {
+            first = grantIDBlock(Integer.toString(floor));
+        } else if (peerClient != null) {
+            String reply = peerClient.call(coordinator, PeerMessage.Message_Type.LEASE_ID_BLOCK, Integer.toString(floor));
+            try {
+                first = reply == null ? -1 : Integer.parseInt(reply);
+            } catch (NumberFormatException e) {
+                first = -1;
+            }
+        }
+        if (first < 0)
+            LOGGER.severe(String.format(Config.LOG_ID_BLOCK_UNAVAILABLE, serverID, coordinator));
+        else
+            LOGGER.info(String.format(Config.LOG_ID_BLOCK_LEASED, serverID, first, first + Config.RECORD_ID_BLOCK_SIZE - 1, coordinator));
+        return first;
+    }
+
+    /**
+     * Only the coordinator grants blocks, the other centers answer -1
+     */
+    private int grantIDBlock(String floor) {
+        if (idBlockLeases == null)
+            return -1;
+        try {
+            return idBlockLeases.lease(Integer.parseInt(floor));
+        } catch (NumberFormatException e) {
+            return -1;
+        } catch (IOException e) {
+            LOGGER.severe(e.getMessage());
+            return -1;
+        }
+    }
+
+    private void onPeerReply(Server_ID id, PeerMessage reply) {
+        recordCounts.merge(reply, 1);
+    }
+
+    /**
+     * Push the local record counter to the other servers as soon as it changes,
+     * and at least every Config.GOSSIP_HEARTBEAT_MILLIS so that they know it is still fresh
+     */
+    private void startGossip() {
+        gossipScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Gossip-" + serverID);
+            thread.setDaemon(true);
+            return thread;
+        });
+        lastGossipNanos = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(Config.GOSSIP_HEARTBEAT_MILLIS);
+        gossipScheduler.scheduleWithFixedDelay(this::gossip, 0, Config.GOSSIP_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        lastFilterShareNanos = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(Config.RECORD_FILTER_HEARTBEAT_MILLIS);
+        gossipScheduler.scheduleWithFixedDelay(this::shareRecordFilter, 0, Config.RECORD_FILTER_SHARE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private void gossip() {
+        long now = System.nanoTime();
+        if (!recordCounts.takeChanged() && now - lastGossipNanos < TimeUnit.MILLISECONDS.toNanos(Config.GOSSIP_HEARTBEAT_MILLIS))
+            return;
+        lastGossipNanos = now;
+        String[] counterState = recordCounts.getLocalState();
+        for (Server_ID id : Server_ID.values()) {
+            if (id != serverID)
+                peerClient.post(id, PeerMessage.Message_Type.GOSSIP_RECORD_COUNTS, counterState);
+        }
+    }
+
+    private void addToRecordFilter(String recordID) {
+        // Read the filter being rebuilt first, so that an ID added during the switch reaches the new filter
+        RecordFilter next = nextRecordFilter;
+        if (next != null)
+            next.add(recordID);
+        recordFilter.add(recordID);
+        recordFilterChanged.set(true);
+    }
+
+    /**
+     * Send the record filter to the other servers when records were added since the last time,
+     * and at least every Config.RECORD_FILTER_HEARTBEAT_MILLIS so that restarted servers get it
+     * The filter is rebuilt first once many of its records were transferred away
+     */
+    private void shareRecordFilter() {
+        try {
+            long removed = removedSinceFilterBuilt.sum();
+            if (removed > 0 && removed >= Config.RECORD_FILTER_REBUILD_RATIO * getRecordsNumber()) {
+                rebuildRecordFilter(removed);
+                recordFilterChanged.set(true);
+            }
+            long now = System.nanoTime();
+            if (!recordFilterChanged.getAndSet(false) && now - lastFilterShareNanos < TimeUnit.MILLISECONDS.toNanos(Config.RECORD_FILTER_HEARTBEAT_MILLIS))
+                return;
+            lastFilterShareNanos = now;
+            String filter = recordFilter.encode();
+            for (Server_ID id : Server_ID.values()) {
+                if (id != serverID)
+                    peerClient.post(id, PeerMessage.Message_Type.SHARE_RECORD_FILTER, serverID.name(), filter);
+            }
+        } catch (Exception e) {
+            // Keep the sharing scheduled
+            LOGGER.severe(e.getMessage());
+        }
+    }
+
+    private void rebuildRecordFilter(long removed) {
+        RecordFilter filter = new RecordFilter();
+        nextRecordFilter = filter;
+        // Every record stored before the snapshot is opened is in it, the later ones are added to both filters
+        int count = 0;
+        try (RecordStore.Snapshot snapshot = recordStore.snapshot()) {
+            Iterator<Record> records = snapshot.recordsAfter(-1);
+            while (records.hasNext()) {
+                filter.add(records.next().getRecordID());
+                count++;
+            }
+        }
+        recordFilter = filter;
+        nextRecordFilter = null;
+        removedSinceFilterBuilt.add(-removed);
+        LOGGER.info(String.format(Config.LOG_RECORD_FILTER_REBUILT, serverID, count, removed));
+    }
+
+    private void receiveRecordFilter(PeerMessage message) {
+        if (message.getFieldCount() != 2)
+            return;
+        try {
+            Server_ID id = Server_ID.valueOf(message.getField(0));
+            RecordFilter filter = RecordFilter.decode(message.getField(1));
+            if (filter != null && id != serverID)
+                peerRecordFilters.put(id, filter);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            LOGGER.severe(e.getMessage());
+        }
+    }
+
+    /**
+     * Follow the log of the primary every Config.REPLICATION_POLL_MILLIS
+     */
+    private void startReplication() {
+        replicationScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Replication-" + serverID);
+            thread.setDaemon(true);
+            return thread;
+        });
+        replicationScheduler.scheduleWithFixedDelay(this::replicate, 0, Config.REPLICATION_POLL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Apply the changes of the primary until there are no more
+     * The records are copied again when the primary no longer keeps the changes the replica is missing
+     */
+    private void replicate() {
+        try {
+            if (appliedLSN < 0 && !resync())
+                return;
             while (true) {
-                // Get the request
-                byte[] buffer = new byte[1000];
-                DatagramPacket request = new DatagramPacket(buffer, buffer.length);
-                socket.receive(request);
-
-                /**
-                 * Each request will be handled by a thread
-                 * Making sure that no request would be missed
-                 */
-                DatagramSocket threadSocket = socket;
-                new Thread(new Runnable() {
-                    @Override
-                    public void run() {
-                        String replyStr = "-1";
-                        String strRequest = new String(request.getData()).trim();
-                        String[] requestComponent = strRequest.split(Config.DELIMITER);
-                        switch (requestComponent[0]) {
-                            case Config.FUNC_GET_RECORDS_NUMBER:
-                                replyStr = Integer.toString(getRecordsNumber());
-                                break;
-                            case Config.FUNC_TRANSFER_STUDENT_RECORD:
-                                replyStr = transferSRecord(requestComponent[1], requestComponent[2], requestComponent[3], requestComponent[4], requestComponent[5], requestComponent[6], requestComponent[7]);
-                                break;
-                            case Config.FUNC_TRANSFER_TEACHER_RECORD:
-                                replyStr = transferTRecord(requestComponent[1], requestComponent[2], requestComponent[3], requestComponent[4], requestComponent[5], requestComponent[6], requestComponent[7], requestComponent[8]);
-                                break;
-                        }
-
-                        // Reply back
-                        DatagramPacket response = new DatagramPacket(replyStr.getBytes(), replyStr.length(), request.getAddress(), request.getPort());
-                        try {
-                            threadSocket.send(response);
-//                        LOGGER.info(String.format(Config.LOG_UDP_METHOD_RESPONSE, calledMethodName, replyStr));
-                        } catch (IOException e) {
-                            LOGGER.severe(e.getMessage());
-                            e.printStackTrace();
-                        }
-                    }
-                }).start();
+                PeerMessage reply = pull(PeerMessage.Message_Type.PULL_CHANGES, Long.toString(appliedLSN));
+                if (reply == null)
+                    return;
+                long lsn = Long.parseLong(reply.getField(0));
+                if (lsn < 0) {
+                    setApplied(-1);
+                    return;
+                }
+                for (int offset = REPLY_DATA_OFFSET; offset + REPLICATION_FIELDS_PER_ENTRY <= reply.getFieldCount(); offset += REPLICATION_FIELDS_PER_ENTRY)
+                    apply(reply, offset);
+                if (lsn == appliedLSN) {
+                    if (!caughtUp)
+                        LOGGER.info(String.format(Config.LOG_REPLICA_CAUGHT_UP, serverID, serverID.getPrimary(), lsn, getRecordsNumber()));
+                    caughtUp = true;
+                    return;
+                }
+                setApplied(lsn);
             }
         } catch (Exception e) {
+            // Keep the replication scheduled
             LOGGER.severe(e.getMessage());
-            System.out.println(e.getMessage());
-        } finally {
-            if (socket != null) {
-                socket.close();
-                LOGGER.info(String.format(Config.LOG_UDP_SERVER_STOP, this.udpPort));
+        }
+    }
+
+    /**
+     * Copy every record of the primary into a new store, page by page, then switch to it
+     * Pages are read from different snapshots, the changes logged since the first page are applied
+     * over them afterwards, which is harmless since entries are full images and deletes
+     */
+    private boolean resync() {
+        RecordStore store = new RecordStore();
+        ClusterRecordCounts counts = new ClusterRecordCounts(serverID);
+        long fromLSN = -1;
+        String cursor = "";
+        do {
+            PeerMessage reply = pull(PeerMessage.Message_Type.PULL_SNAPSHOT, cursor);
+            if (reply == null || reply.getFieldCount() <= REPLY_DATA_OFFSET)
+                return false;
+            long lsn = Long.parseLong(reply.getField(0));
+            if (lsn < 0)
+                return false;
+            if (fromLSN < 0)
+                fromLSN = lsn;
+            cursor = reply.getField(REPLY_DATA_OFFSET);
+            for (int offset = REPLY_DATA_OFFSET + 1; offset + RECORD_FIELDS <= reply.getFieldCount(); offset += RECORD_FIELDS) {
+                Record record = recordOf(reply, offset);
+                if (record != null && store.put(record) == null)
+                    counts.increment();
             }
+        } while (cursor != null && !cursor.isEmpty());
+
+        recordStore = store;
+        recordCounts = counts;
+        caughtUp = false;
+        LOGGER.info(String.format(Config.LOG_REPLICA_RESYNC, serverID, serverID.getPrimary(), fromLSN));
+        setApplied(fromLSN);
+        return true;
+    }
+
+    private void apply(PeerMessage entry, int offset) {
+        if (REPLICATED_PUT.equals(entry.getField(offset))) {
+            Record record = recordOf(entry, offset + 1);
+            if (record != null)
+                replay(new WriteAheadLog.Entry(WriteAheadLog.Operation.PUT, record.getRecordID(), record));
+        } else if (REPLICATED_DELETE.equals(entry.getField(offset)) && entry.getField(offset + 1) != null) {
+            replay(new WriteAheadLog.Entry(WriteAheadLog.Operation.DELETE, entry.getField(offset + 1), null));
+        }
+    }
+
+    /**
+     * Return null if the primary did not answer
+     */
+    private PeerMessage pull(PeerMessage.Message_Type type, String field) {
+        try {
+            return peerClient.exchange(serverID.getPrimary(), Config.REPLICATION_TIMEOUT_MILLIS, 1, type, field).get();
+        } catch (ExecutionException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
 
+    private void setApplied(long lsn) {
+        synchronized (replicationProgress) {
+            appliedLSN = lsn;
+            replicationProgress.notifyAll();
         }
     }
 
+    /**
+     * Wait up to Config.REPLICA_SESSION_WAIT_MILLIS for the replica to apply the changes before the session token
+     * Return false if it is still behind, a primary is never behind
+     */
+    private boolean awaitSession(String sessionToken) {
+        if (!serverID.isReplica() || sessionToken == null || sessionToken.isEmpty())
+            return true;
+        long lsn;
+        try {
+            lsn = Long.parseLong(sessionToken);
+        } catch (NumberFormatException e) {
+            return true;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Config.REPLICA_SESSION_WAIT_MILLIS);
+        synchronized (replicationProgress) {
+            while (appliedLSN < lsn) {
+                long wait = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (wait <= 0)
+                    return false;
+                try {
+                    replicationProgress.wait(wait);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Node whose records this server holds, the primary of a replica
+     */
+    private Server_ID ownNode() {
+        return serverID.isReplica() ? serverID.getPrimary() : serverID;
+    }
+
+    /**
+     * Replicas only serve reads, the changes go to their primary
+     */
+    private boolean isReadOnly(String managerID) {
+        if (!serverID.isReplica())
+            return false;
+        LOGGER.info(String.format(Config.LOG_REPLICA_READ_ONLY, managerID, serverID));
+        return true;
+    }
+
     private int getRecordsNumber() {
         /**
          * This function could be called concurrently by many threads
          * when some servers request the number of records of this server at the same time
-         * Make sure only one thread can access the shared variable at a time
+         * The striped counter is summed without blocking the writers
          */
-        synchronized (lockCount) {
-            return this.recordsCount;
+        return (int) this.recordCounts.getLocal();
+    }
+
+    /**
+     * Number of payloads in a batch, or -1 if the columns have different lengths,
+     * a last name is missing or the batch is larger than Config.MAX_BATCH_SIZE
+     * An empty batch may arrive as null arrays
+     */
+    private static int batchSize(String[] lastNames, String[]... columns) {
+        int count = lastNames == null ? 0 : lastNames.length;
+        if (count > Config.MAX_BATCH_SIZE)
+            return -1;
+        for (String[] column : columns) {
+            if ((column == null ? 0 : column.length) != count)
+                return -1;
+        }
+        for (int i = 0; i < count; i++) {
+            if (lastNames[i] == null || lastNames[i].isEmpty())
+                return -1;
         }
+        return count;
     }
 
-    private ArrayList<Record> getRecordsList(char lastNameInitial) {
-        synchronized (recordsMap) {
-            if (recordsMap.containsKey(lastNameInitial))
-                return recordsMap.get(lastNameInitial);
-            else {
-                ArrayList<Record> recordsList = new ArrayList<>();
-                recordsMap.put(lastNameInitial, recordsList);
-                return recordsList;
+    /**
+     * Group the new records by bucket, then take the lock of each bucket once for all of its records
+     * Return the LSN of the last log entry of the batch, or -1 if the log has failed: the records
+     * stored before the failure are left to the caller to undo
+     */
+    private long storeBatch(Record[] newRecords) {
+        Map<RecordStore.Bucket, List<Record>> batches = new HashMap<>();
+        for (Record newRecord : newRecords)
+            batches.computeIfAbsent(recordStore.getBucket(newRecord), bucket -> new ArrayList<>()).add(newRecord);
+
+        long lsn = 0;
+        for (Map.Entry<RecordStore.Bucket, List<Record>> batch : batches.entrySet()) {
+            synchronized (batch.getKey()) {
+                for (Record newRecord : batch.getValue()) {
+                    lsn = storeAndLog(newRecord);
+                    if (lsn < 0)
+                        return lsn;
+                    addToRecordFilter(newRecord.getRecordID());
+                }
             }
         }
+        return lsn;
     }
 
-    private Record locateRecord(String recordID) {
-        Record recordFound = null;
-        boolean isRecordFound = false;
-        /**
-         * Synchronize the whole HashMap to prevent other
-         * threads from modifying it when it is being iterated
-         */
-        synchronized (recordsMap) {
-            for (ArrayList<Record> recordsList : this.recordsMap.values()) {
-                Iterator<Record> iterator = recordsList.iterator();
-                while ((iterator.hasNext()) && (!isRecordFound)) {
-                    recordFound = iterator.next();
-                    if (recordFound.getRecordID().compareTo(recordID) == 0) {
-                        isRecordFound = true;
-                        break;
-                    }
+    /**
+     * Store the record, then log it, called with the bucket lock held
+     * The store is changed first so that snapshots cover the log, the change is taken back if the log has failed
+     * Return the LSN of the entry, or -1 if the log has failed
+     */
+    private long storeAndLog(Record record) {
+        Record previous = recordStore.put(record);
+        if (previous == null)
+            recordCounts.increment();
+        long lsn = writeAheadLog.logPut(record);
+        if (lsn < 0)
+            undo(record, previous);
+        return lsn;
+    }
+
+    /**
+     * Take back a change the log failed to persist, unless the record was changed again since
+     * previous is the record the change replaced, null if the change created the record
+     */
+    private void undo(Record record, Record previous) {
+        synchronized (recordStore.getBucket(record)) {
+            if (locateRecord(record.getRecordID()) != record)
+                return;
+            if (previous != null) {
+                recordStore.put(previous);
+            } else if (recordStore.remove(record)) {
+                recordCounts.decrement();
+                removedSinceFilterBuilt.increment();
+            }
+        }
+    }
+
+    /**
+     * Rebuild the record store from the latest snapshot plus the tail of the write-ahead log,
+     * then keep logging to it
+     */
+    private void recover() throws IOException {
+        Path dataDirectory = Paths.get(Config.DATA_DIRECTORY);
+        Path snapshotPath = dataDirectory.resolve(String.format(Config.SNAPSHOT_FILENAME, serverID));
+        if (Files.exists(snapshotPath)) {
+            try {
+                SnapshotFile.Header header = SnapshotFile.read(snapshotPath, this::load);
+                synchronized (appliedTransfers) {
+                    for (String transferID : header.appliedTransfers)
+                        appliedTransfers.put(transferID, Boolean.TRUE);
                 }
+                snapshotLSN = header.lsn;
+                recordIDAllocator.advancePast(header.nextRecordID - 1);
+                LOGGER.info(String.format(Config.LOG_SNAPSHOT_LOADED, serverID, header.lsn, header.recordsCount));
+            } catch (IOException e) {
+                // Nothing has been loaded, fall back to whatever the log still holds
+                LOGGER.severe(String.format(Config.LOG_SNAPSHOT_FAILED, serverID, snapshotPath, e.getMessage()));
+            }
+        }
+        writeAheadLog = new WriteAheadLog(dataDirectory, serverID.name(), Config.DURABILITY_LEVEL, snapshotLSN, this::replay);
+        // Records of the transfers left pending are frozen again before any request is served
+        transferOutbox = new TransferOutbox(dataDirectory, serverID);
+        if (serverID == Server_ID.getIDLeaseCoordinator())
+            idBlockLeases = new IDBlockLeases(dataDirectory);
+        LOGGER.info(String.format(Config.LOG_WAL_REPLAYED, serverID, writeAheadLog.getAppendedLSN(), getRecordsNumber()));
+    }
+
+    private void load(Record record) {
+        if (recordStore.put(record) == null)
+            recordCounts.increment();
+        addToRecordFilter(record.getRecordID());
+        recordIDAllocator.advancePast(RecordIndex.keyOf(record.getRecordID()));
+    }
+
+    private void startSnapshotScheduler() {
+        snapshotScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Snapshot-" + serverID);
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshotScheduler.scheduleWithFixedDelay(this::writeSnapshot, Config.SNAPSHOT_INTERVAL_SECONDS, Config.SNAPSHOT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Write a snapshot of the records in the background, then drop the log segments it covers
+     * Writers are never paused: the records are read from an MVCC snapshot of the store
+     */
+    private void writeSnapshot() {
+        if (writeAheadLog.getAppendedLSN() - snapshotLSN < Config.SNAPSHOT_MIN_LOG_ENTRIES)
+            return;
+        Path snapshotPath = Paths.get(Config.DATA_DIRECTORY).resolve(String.format(Config.SNAPSHOT_FILENAME, serverID));
+        long start = System.nanoTime();
+        try {
+            /**
+             * Every change is applied to the store before it is appended to the log,
+             * so a store snapshot opened after reading the LSN contains every entry up to it.
+             * It may contain some later ones as well, replaying those again is harmless
+             * because entries are full images and deletes.
+             */
+            long segmentBase = writeAheadLog.rotate();
+            long lsn = writeAheadLog.getAppendedLSN();
+            List<String> transferIDs;
+            synchronized (appliedTransfers) {
+                transferIDs = new ArrayList<>(appliedTransfers.keySet());
+            }
+            SnapshotFile.Header header;
+            try (RecordStore.Snapshot snapshot = recordStore.snapshot()) {
+                header = SnapshotFile.write(snapshotPath, lsn, recordIDAllocator.peek(), snapshot, transferIDs);
+            }
+            writeAheadLog.deleteSegmentsBefore(segmentBase);
+            snapshotLSN = lsn;
+            LOGGER.info(String.format(Config.LOG_SNAPSHOT_WRITTEN, serverID, lsn, header.recordsCount, (System.nanoTime() - start) / 1000000));
+        } catch (Exception e) {
+            LOGGER.severe(String.format(Config.LOG_SNAPSHOT_FAILED, serverID, snapshotPath, e.getMessage()));
+        }
+    }
+
+    private void replay(WriteAheadLog.Entry entry) {
+        int key = RecordIndex.keyOf(entry.recordID);
+        if (key < 0)
+            return;
+        if (entry.transferID != null) {
+            synchronized (appliedTransfers) {
+                appliedTransfers.put(entry.transferID, Boolean.TRUE);
+            }
+        }
+        if (entry.operation != WriteAheadLog.Operation.DELETE) {
+            if (recordStore.put(entry.record) == null)
+                recordCounts.increment();
+            addToRecordFilter(entry.recordID);
+            // Never hand out again an ID this center has already seen
+            recordIDAllocator.advancePast(key);
+        } else {
+            Record record = recordStore.get(entry.recordID);
+            if (record != null && recordStore.remove(record)) {
+                recordCounts.decrement();
+                removedSinceFilterBuilt.increment();
             }
         }
-        if (!isRecordFound)
-            recordFound = null;
-        return recordFound;
+    }
+
+    /**
+     * Return false if the log failed before the entry was durable, the change must then not be acknowledged
+     */
+    private boolean awaitDurable(String recordID, long lsn) {
+        if (writeAheadLog.awaitDurable(lsn))
+            return true;
+        LOGGER.severe(String.format(Config.LOG_WAL_NOT_DURABLE, serverID, recordID));
+        return false;
+    }
+
+    private Record locateRecord(String recordID) {
+        return recordStore.get(recordID);
     }
 
     private void initiateLogger() throws IOException {
@@ -499,67 +1539,377 @@ public class CenterServer implements ServerInterface {
         fileHandler.setFormatter(formatter);
     }
 
-    private String transferTRecord(String managerID, String recordID, String firstName, String lastName, String address, String phone, String specialization, String location) {
-        char lastNameInitial = Character.toUpperCase(lastName.charAt(0));
+    private Server_ID remoteServerOf(String remoteCenterServerName) {
+        try {
+            // Records are transferred to a center, its shards are not addressed directly
+            Server_ID remoteServerID = Server_ID.valueOf(remoteCenterServerName).getCenter();
+            return remoteServerID == serverID.getCenter() ? null : remoteServerID;
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return null;
+        }
+    }
 
-        // Create new record
-        TeacherRecord newRecord = new TeacherRecord(recordID, firstName, lastName, address, phone, specialization, location);
+    /**
+     * Mark the records in flight and log their transfers in the outbox, then deliver them
+     * Return the recordIDs that were transferred
+     */
+    private Set<String> transferBatch(String managerID, Collection<String> recordIDs, Server_ID remoteServerID) {
+        Map<RecordStore.Bucket, List<String>> batches = new HashMap<>();
+        for (String recordID : recordIDs) {
+            Record record = locateRecord(recordID);
+            if (record != null)
+                batches.computeIfAbsent(recordStore.getBucket(record), bucket -> new ArrayList<>()).add(recordID);
+        }
 
-        /**
-         * Lock the corresponding ArrayList to the LastName's initial character
-         * Multiple threads can modify the same ArrayList safely
-         * Prevent unpredictable behaviors of ArrayList
-         * Ensure recordCount is always true
-         * Ensure server logs are updated and reflect server's activities correctly
-         */
-        synchronized (recordsMap) {
-            ArrayList<Record> recordsList;
-            if (recordsMap.containsKey(lastNameInitial))
-                recordsList = recordsMap.get(lastNameInitial);
-            else {
-                recordsList = new ArrayList<>();
-                recordsMap.put(lastNameInitial, recordsList);
+        // Freeze the records, one lock per bucket, a record already in flight is left to its transfer
+        List<Record> marked = new ArrayList<>();
+        for (Map.Entry<RecordStore.Bucket, List<String>> batch : batches.entrySet()) {
+            synchronized (batch.getKey()) {
+                for (String recordID : batch.getValue()) {
+                    Record record = locateRecord(recordID);
+                    if (record != null && transferOutbox.mark(record))
+                        marked.add(record);
+                }
             }
+        }
+        if (marked.isEmpty())
+            return Collections.emptySet();
+
+        // Each record goes to the shard of the remote center that holds its last name
+        Map<Server_ID, List<Record>> byShard = new LinkedHashMap<>();
+        for (Record record : marked)
+            byShard.computeIfAbsent(remoteServerID.shardOf(record.getLastName()), shard -> new ArrayList<>()).add(record);
 
-            // Add the new record to the list
-            recordsList.add(newRecord);
-            recordsCount++;
-            LOGGER.info(String.format(Config.LOG_TRANSFER_TEACHER_RECORD, managerID, recordID, firstName, lastName, address, phone, specialization, location));
+        List<TransferOutbox.Transfer> transfers = new ArrayList<>(marked.size());
+        for (Map.Entry<Server_ID, List<Record>> shard : byShard.entrySet()) {
+            try {
+                transfers.addAll(transferOutbox.begin(shard.getValue(), shard.getKey()));
+            } catch (IOException e) {
+                LOGGER.severe(String.format(Config.LOG_OUTBOX_FAILED, serverID, e.getMessage()));
+            }
         }
+        if (transfers.isEmpty())
+            return Collections.emptySet();
+        return deliver(managerID, transfers);
+    }
+
+    /**
+     * Ship the claimed transfers, then complete those the remote servers confirmed
+     * The others stay pending and are released for the next retry
+     */
+    private Set<String> deliver(String managerID, List<TransferOutbox.Transfer> transfers) {
+        Map<Server_ID, List<TransferOutbox.Transfer>> byRemoteServer = new LinkedHashMap<>();
+        for (TransferOutbox.Transfer transfer : transfers)
+            byRemoteServer.computeIfAbsent(transfer.getRemoteServerID(), id -> new ArrayList<>()).add(transfer);
 
-        return recordID;
+        Set<String> transferred = new HashSet<>();
+        try {
+            for (Map.Entry<Server_ID, List<TransferOutbox.Transfer>> batch : byRemoteServer.entrySet())
+                transferred.addAll(complete(ship(managerID, batch.getKey(), batch.getValue())));
+        } finally {
+            for (TransferOutbox.Transfer transfer : transfers)
+                transfer.release();
+        }
+        return transferred;
     }
 
-    private String transferSRecord(String managerID, String recordID, String firstName, String lastName, String coursesRegistered, String status, String statusDate) {
-        char lastNameInitial = Character.toUpperCase(lastName.charAt(0));
+    /**
+     * Send the records to the remote server in chunks that each fit in one message of the transport,
+     * with up to Config.TRANSFER_WINDOW chunks in flight at once
+     * Return the transfers the remote server confirmed
+     */
+    private List<TransferOutbox.Transfer> ship(String managerID, Server_ID remoteServerID, List<TransferOutbox.Transfer> transfers) {
+        List<TransferOutbox.Transfer> confirmed = new ArrayList<>();
+        Deque<Map.Entry<List<TransferOutbox.Transfer>, CompletableFuture<String>>> inFlight = new ArrayDeque<>();
+        List<String> fields = new ArrayList<>();
+        List<TransferOutbox.Transfer> chunk = new ArrayList<>();
+        int chunkHeaderLength = PeerMessage.HEADER_SIZE + PeerMessage.encodedLength(managerID) + PeerMessage.encodedLength(serverID.name());
+        int chunkLength = chunkHeaderLength;
+        int maxChunkLength = PeerMessage.Message_Type.TRANSFER_RECORDS.getMaxSize();
+        int maxChunkSize = PeerMessage.Message_Type.TRANSFER_RECORDS.getTransport() == Config.Transport.TCP ? Config.TCP_TRANSFER_CHUNK_SIZE : Config.TRANSFER_CHUNK_SIZE;
 
-        // Create new record
-        StudentRecord newRecord = null;
+        for (int i = 0; i <= transfers.size(); i++) {
+            String[] recordFields = i < transfers.size() ? transferFields(transfers.get(i)) : null;
+            int recordLength = 0;
+            if (recordFields != null) {
+                for (String field : recordFields)
+                    recordLength += PeerMessage.encodedLength(field);
+                if (chunkHeaderLength + recordLength > maxChunkLength) {
+                    // Can never fit in a message, the transfer stays pending
+                    LOGGER.info(String.format(Config.LOG_TRANSFER_RECORD_FAIL, managerID, transfers.get(i).getRecord().getRecordID(), remoteServerID));
+                    continue;
+                }
+            }
 
-        newRecord = new StudentRecord(recordID, firstName, lastName, coursesRegistered, status, statusDate);
+            // Send the chunk once it is full, or once the next record would not fit in the message
+            if (!chunk.isEmpty() && (recordFields == null || chunk.size() == maxChunkSize
+                    || chunkLength + recordLength > maxChunkLength)) {
+                if (inFlight.size() == Config.TRANSFER_WINDOW)
+                    collectConfirmed(inFlight.poll(), confirmed);
+                inFlight.add(new AbstractMap.SimpleEntry<>(chunk, peerClient.callAsync(remoteServerID, Config.TRANSFER_TIMEOUT_MILLIS, Config.PEER_ATTEMPTS,
+                        PeerMessage.Message_Type.TRANSFER_RECORDS, fields.toArray(new String[0]))));
+                chunk = new ArrayList<>();
+                fields = new ArrayList<>();
+            }
+            if (recordFields == null)
+                break;
+            if (chunk.isEmpty()) {
+                fields.add(managerID);
+                fields.add(serverID.name());
+                chunkLength = chunkHeaderLength;
+            }
+            chunk.add(transfers.get(i));
+            Collections.addAll(fields, recordFields);
+            chunkLength += recordLength;
+        }
+        while (!inFlight.isEmpty())
+            collectConfirmed(inFlight.poll(), confirmed);
+        return confirmed;
+    }
 
-        /**
-         * Lock the corresponding ArrayList to the LastName's initial character
-         * Multiple threads can modify the same ArrayList safely
-         * Prevent unpredictable behaviors of ArrayList
-         * Ensure recordCount is always true
-         * Ensure server logs are updated and reflect server's activities correctly
-         */
-        synchronized (recordsMap) {
-            ArrayList<Record> recordsList;
-            if (recordsMap.containsKey(lastNameInitial))
-                recordsList =  recordsMap.get(lastNameInitial);
-            else {
-                recordsList = new ArrayList<>();
-                recordsMap.put(lastNameInitial, recordsList);
+    private void collectConfirmed(Map.Entry<List<TransferOutbox.Transfer>, CompletableFuture<String>> chunk, List<TransferOutbox.Transfer> confirmed) {
+        String results;
+        try {
+            results = chunk.getValue().get();
+        } catch (ExecutionException e) {
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        List<TransferOutbox.Transfer> transfers = chunk.getKey();
+        for (int i = 0; i < transfers.size() && i < results.length(); i++) {
+            if (results.charAt(i) == '1')
+                confirmed.add(transfers.get(i));
+        }
+    }
+
+    /**
+     * Delete the records of the confirmed transfers in bulk, one lock per bucket and one wait for durability,
+     * then log the transfers as done
+     * Return the recordIDs of the completed transfers
+     */
+    private Set<String> complete(List<TransferOutbox.Transfer> confirmed) {
+        Map<RecordStore.Bucket, List<TransferOutbox.Transfer>> batches = new HashMap<>();
+        for (TransferOutbox.Transfer transfer : confirmed)
+            batches.computeIfAbsent(recordStore.getBucket(transfer.getRecord()), bucket -> new ArrayList<>()).add(transfer);
+
+        String lastRecordID = null;
+        long lsn = 0;
+        for (Map.Entry<RecordStore.Bucket, List<TransferOutbox.Transfer>> batch : batches.entrySet()) {
+            synchronized (batch.getKey()) {
+                for (TransferOutbox.Transfer transfer : batch.getValue()) {
+                    // Absent if it was deleted before a restart, but the transfer was not logged as done
+                    Record record = locateRecord(transfer.getRecord().getRecordID());
+                    if (record != null && recordStore.remove(record)) {
+                        lsn = writeAheadLog.logDelete(record.getRecordID());
+                        recordCounts.decrement();
+                        removedSinceFilterBuilt.increment();
+                        lastRecordID = record.getRecordID();
+                    }
+                }
+            }
+        }
+
+        // The deletes must be durable before the transfers are done, or a crash would bring the records back
+        if (lsn != 0 && !writeAheadLog.awaitDurable(lsn)) {
+            LOGGER.severe(String.format(Config.LOG_WAL_NOT_DURABLE, serverID, lastRecordID));
+            return Collections.emptySet();
+        }
+        try {
+            transferOutbox.end(confirmed);
+        } catch (IOException e) {
+            // They stay pending, shipping them again is harmless
+            LOGGER.severe(String.format(Config.LOG_OUTBOX_FAILED, serverID, e.getMessage()));
+        }
+
+        Set<String> completed = new HashSet<>();
+        for (TransferOutbox.Transfer transfer : confirmed)
+            completed.add(transfer.getRecord().getRecordID());
+        return completed;
+    }
+
+    /**
+     * transferID, recordID, type, then the record's fields, always TRANSFER_FIELDS_PER_RECORD of them
+     */
+    private static String[] transferFields(TransferOutbox.Transfer transfer) {
+        String[] fields = new String[TRANSFER_FIELDS_PER_RECORD];
+        fields[0] = transfer.getTransferID();
+        System.arraycopy(recordFields(transfer.getRecord()), 0, fields, 1, RECORD_FIELDS);
+        return fields;
+    }
+
+    /**
+     * The record as RECORD_FIELDS message fields, read back by recordOf
+     */
+    private static String[] recordFields(Record record) {
+        if (record.getRecordType() == Record.Record_Type.TEACHER) {
+            TeacherRecord teacherRecord = (TeacherRecord) record;
+            return new String[]{teacherRecord.getRecordID(), Config.IMPORT_TEACHER_RECORD, teacherRecord.getFirstName(), teacherRecord.getLastName(),
+                    teacherRecord.getAddress(), teacherRecord.getPhone(), teacherRecord.getSpecialization(), teacherRecord.getLocation()};
+        }
+        StudentRecord studentRecord = (StudentRecord) record;
+        return new String[]{studentRecord.getRecordID(), Config.IMPORT_STUDENT_RECORD, studentRecord.getFirstName(), studentRecord.getLastName(),
+                studentRecord.getCoursesRegistered(), studentRecord.getStatus(), studentRecord.getStatusDate(), null};
+    }
+
+    /**
+     * Return the record at fields[offset..offset + RECORD_FIELDS - 1], or null if they are not a valid record
+     */
+    private static Record recordOf(PeerMessage message, int offset) {
+        String recordID = message.getField(offset);
+        String lastName = message.getField(offset + 3);
+        if (recordID == null || lastName == null || lastName.isEmpty())
+            return null;
+        if (Config.IMPORT_TEACHER_RECORD.equals(message.getField(offset + 1)))
+            return new TeacherRecord(recordID, message.getField(offset + 2), lastName, message.getField(offset + 4),
+                    message.getField(offset + 5), message.getField(offset + 6), message.getField(offset + 7));
+        if (Config.IMPORT_STUDENT_RECORD.equals(message.getField(offset + 1)))
+            return new StudentRecord(recordID, message.getField(offset + 2), lastName, message.getField(offset + 4),
+                    message.getField(offset + 5), message.getField(offset + 6));
+        return null;
+    }
+
+    /**
+     * Ship the pending transfers again, the ones that timed out and the ones left over from before a restart
+     */
+    private void startTransferRetries() {
+        transferScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Transfer-" + serverID);
+            thread.setDaemon(true);
+            return thread;
+        });
+        transferScheduler.scheduleWithFixedDelay(this::retryTransfers, 0, Config.TRANSFER_RETRY_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private void retryTransfers() {
+        try {
+            List<TransferOutbox.Transfer> transfers = new ArrayList<>();
+            List<TransferOutbox.Transfer> expired = new ArrayList<>();
+            long now = System.currentTimeMillis();
+            for (TransferOutbox.Transfer transfer : transferOutbox.getPending()) {
+                // Skip the transfers a manager is delivering right now
+                if (transfer.claim())
+                    (transfer.isExpired(now) ? expired : transfers).add(transfer);
             }
+            abortTransfers(expired);
+            if (transfers.isEmpty())
+                return;
+            Set<String> transferred = deliver(serverID.name(), transfers);
+            LOGGER.info(String.format(Config.LOG_TRANSFER_RETRIED, serverID, transferred.size(), transfers.size()));
+        } catch (Exception e) {
+            // Keep the retries scheduled
+            LOGGER.severe(e.getMessage());
+        }
+    }
 
-            // Add the new record to the list
-            recordsList.add(newRecord);
-            recordsCount++;
-            LOGGER.info(String.format(Config.LOG_TRANSFER_STUDENT_RECORD, managerID, recordID, firstName, lastName, newRecord.getCoursesRegistered(), status, statusDate));
+    /**
+     * Give up the claimed transfers the remote servers never confirmed, their records stay here and are unfrozen
+     */
+    private void abortTransfers(List<TransferOutbox.Transfer> expired) {
+        if (expired.isEmpty())
+            return;
+        try {
+            transferOutbox.abort(expired);
+            for (TransferOutbox.Transfer transfer : expired)
+                LOGGER.info(String.format(Config.LOG_TRANSFER_ABORTED, serverID, transfer.getTransferID(), transfer.getRecord().getRecordID(), transfer.getRemoteServerID()));
+        } catch (IOException e) {
+            // Still pending, aborted again on the next retry
+            LOGGER.severe(String.format(Config.LOG_OUTBOX_FAILED, serverID, e.getMessage()));
+        } finally {
+            for (TransferOutbox.Transfer transfer : expired)
+                transfer.release();
         }
+    }
 
-        return recordID;
+    /**
+     * Store a chunk of transferred records, one lock per bucket and one wait for durability
+     * A transfer that was already applied is only confirmed again, so a late or repeated chunk
+     * never overwrites a record that was edited or transferred on since.
+     * The transfer IDs are logged with the records, so this holds across a restart as well
+     * Reply with one character per record, '1' if it is stored durably, '0' if it is malformed or not stored,
+     * or "" if the log failed: none of the records of the chunk is kept then
+     */
+    private String receiveRecords(PeerMessage request) {
+        if (request.getFieldCount() < 2 || (request.getFieldCount() - 2) % TRANSFER_FIELDS_PER_RECORD != 0)
+            return "";
+        String managerID = request.getField(0);
+        int count = (request.getFieldCount() - 2) / TRANSFER_FIELDS_PER_RECORD;
+        char[] results = new char[count];
+        Record[] records = new Record[count];
+        String[] transferIDs = new String[count];
+        Map<RecordStore.Bucket, List<Integer>> batches = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            int offset = 2 + i * TRANSFER_FIELDS_PER_RECORD;
+            transferIDs[i] = request.getField(offset);
+            records[i] = transferIDs[i] == null ? null : recordOf(request, offset + 1);
+            results[i] = records[i] == null ? '0' : '1';
+            if (records[i] != null && !isTransferApplied(transferIDs[i]))
+                batches.computeIfAbsent(recordStore.getBucket(records[i]), bucket -> new ArrayList<>()).add(i);
+        }
+
+        List<Record> received = new ArrayList<>(count);
+        List<String> receivedIDs = new ArrayList<>(count);
+        String lastRecordID = null;
+        long lsn = 0;
+        for (Map.Entry<RecordStore.Bucket, List<Integer>> batch : batches.entrySet()) {
+            synchronized (batch.getKey()) {
+                for (int i : batch.getValue()) {
+                    Record record = records[i];
+                    /**
+                     * Held without a durable transfer: the same transfer is being applied by another delivery,
+                     * it is confirmed once that one is durable
+                     */
+                    if (recordStore.get(record.getRecordID()) != null) {
+                        results[i] = '0';
+                        continue;
+                    }
+                    recordStore.put(record);
+                    recordCounts.increment();
+                    addToRecordFilter(record.getRecordID());
+                    /**
+                     * The transfer is marked applied before it is logged, so that a snapshot
+                     * taken after the entry's LSN always includes it
+                     */
+                    synchronized (appliedTransfers) {
+                        appliedTransfers.put(transferIDs[i], Boolean.TRUE);
+                        pendingTransfers.add(transferIDs[i]);
+                    }
+                    received.add(record);
+                    receivedIDs.add(transferIDs[i]);
+                    lastRecordID = record.getRecordID();
+                    lsn = writeAheadLog.logReceive(transferIDs[i], record);
+                    if (lsn < 0)
+                        break;
+                }
+            }
+            if (lsn < 0)
+                break;
+        }
+        // The sender deletes its copies once we reply, so the records must be durable here first
+        boolean durable = lsn == 0 || awaitDurable(lastRecordID, lsn);
+        synchronized (appliedTransfers) {
+            for (String transferID : receivedIDs) {
+                pendingTransfers.remove(transferID);
+                if (!durable)
+                    appliedTransfers.remove(transferID);
+            }
+        }
+        if (!durable) {
+            for (Record record : received)
+                undo(record, null);
+            return "";
+        }
+        LOGGER.info(String.format(Config.LOG_RECEIVE_RECORDS, managerID, received.size(), request.getField(1)));
+        return new String(results);
+    }
+
+    /**
+     * Return true once the records of the transfer are durable here
+     */
+    private boolean isTransferApplied(String transferID) {
+        synchronized (appliedTransfers) {
+            return appliedTransfers.containsKey(transferID) && !pendingTransfers.contains(transferID);
+        }
     }
 }
@@ -0,0 +1,129 @@
+package Servers;
+
+import Utils.Config.Server_ID;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Record counts of every center, kept as one PN-counter per center.
+ *
+ * A center only ever adds to the increments and decrements of its own counter, and gossips its state
+ * (epoch, increments, decrements) to the other centers. Received states are merged by taking
+ * the maximum of each component, so duplicated, reordered or lost gossip messages never skew a count:
+ * a later message simply carries everything the earlier ones did.
+ *
+ * A restarted center counts again from its recovered records under a new, greater epoch,
+ * which replaces whatever the other centers knew of its previous run.
+ */
+public class ClusterRecordCounts {
+    private final Server_ID self;
+    private final long epoch;
+    private final LongAdder increments = new LongAdder();
+    private final LongAdder decrements = new LongAdder();
+    private final AtomicBoolean changed = new AtomicBoolean();
+    private final Map<Server_ID, Counter> peers = new HashMap<>();
+
+    public ClusterRecordCounts(Server_ID self) {
+        this.self = self;
+        this.epoch = System.currentTimeMillis();
+        for (Server_ID id : Server_ID.values()) {
+            if (id != self)
+                peers.put(id, new Counter());
+        }
+    }
+
+    public void increment() {
+        add(1);
+    }
+
+    public void decrement() {
+        decrements.increment();
+        changed.set(true);
+    }
+
+    public void add(long count) {
+        increments.add(count);
+        changed.set(true);
+    }
+
+    /**
+     * Number of records of this center
+     */
+    public long getLocal() {
+        return increments.sum() - decrements.sum();
+    }
+
+    /**
+     * Return true once after every change of the local counter, the gossip pushes it right away
+     */
+    public boolean takeChanged() {
+        return changed.getAndSet(false);
+    }
+
+    /**
+     * State of the local counter, as the fields of a gossip message
+     * Decrements are read first so that a concurrent transfer never shows a count lower than the real one
+     */
+    public String[] getLocalState() {
+        long decrementsSum = decrements.sum();
+        long incrementsSum = increments.sum();
+        return new String[]{self.name(), Long.toString(epoch), Long.toString(incrementsSum), Long.toString(decrementsSum)};
+    }
+
+    /**
+     * Merge the state of a peer's counter, received at fields[offset..offset + 3]
+     * Return false if the fields are not a counter state
+     */
+    public boolean merge(PeerMessage message, int offset) {
+        if (message.getFieldCount() < offset + 4)
+            return false;
+        try {
+            Counter counter = peers.get(Server_ID.valueOf(message.getField(offset)));
+            if (counter == null)
+                return false;
+            counter.merge(Long.parseLong(message.getField(offset + 1)), Long.parseLong(message.getField(offset + 2)), Long.parseLong(message.getField(offset + 3)));
+            return true;
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Number of records of the peer, or -1 if it has not been heard from within maxStalenessMillis
+     */
+    public long get(Server_ID id, long maxStalenessMillis) {
+        Counter counter = peers.get(id);
+        return counter == null ? -1 : counter.get(TimeUnit.MILLISECONDS.toNanos(maxStalenessMillis));
+    }
+
+    private static final class Counter {
+        private long epoch = -1;
+        private long increments;
+        private long decrements;
+        private long refreshedAt;
+
+        synchronized void merge(long epoch, long increments, long decrements) {
+            if (epoch < this.epoch)
+                return;
+            if (epoch > this.epoch) {
+                this.epoch = epoch;
+                this.increments = increments;
+                this.decrements = decrements;
+            } else {
+                this.increments = Math.max(this.increments, increments);
+                this.decrements = Math.max(this.decrements, decrements);
+            }
+            this.refreshedAt = System.nanoTime();
+        }
+
+        synchronized long get(long maxStalenessNanos) {
+            if (epoch == -1 || System.nanoTime() - refreshedAt > maxStalenessNanos)
+                return -1;
+            return increments - decrements;
+        }
+    }
+}
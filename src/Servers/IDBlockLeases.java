@@ -0,0 +1,61 @@
+package Servers;
+
+import Utils.Config;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Record ID blocks leased to the centers, kept by the lease coordinator of the cluster.
+ *
+ * Blocks are handed out in increasing order, the first number that was never leased is the whole state.
+ * It is synced to the disk before a block is handed out, so a block is never leased twice,
+ * even if the coordinator crashes right after the lease.
+ */
+public class IDBlockLeases {
+    private final Path path;
+    private int nextFree;
+
+    public IDBlockLeases(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        this.path = directory.resolve(Config.ID_LEASES_FILENAME);
+        if (Files.exists(path)) {
+            try (DataInputStream in = new DataInputStream(Files.newInputStream(path))) {
+                nextFree = in.readInt();
+            }
+        }
+    }
+
+    /**
+     * Lease the next block of Config.RECORD_ID_BLOCK_SIZE numbers, all greater than floor
+     * Return its first number, or -1 if the numbers are exhausted
+     */
+    public synchronized int lease(int floor) throws IOException {
+        int first = Math.max(nextFree, floor + 1);
+        if (first < 0 || first > Integer.MAX_VALUE - Config.RECORD_ID_BLOCK_SIZE)
+            return -1;
+        write(first + Config.RECORD_ID_BLOCK_SIZE);
+        nextFree = first + Config.RECORD_ID_BLOCK_SIZE;
+        return first;
+    }
+
+    /**
+     * Write the state to a temporary file, then atomically replace the previous one
+     */
+    private void write(int next) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES).putInt(0, next);
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
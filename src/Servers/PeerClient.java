@@ -0,0 +1,378 @@
+package Servers;
+
+import Utils.Config;
+import Utils.Config.Server_ID;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * RPC client of the other centers.
+ *
+ * Each peer has one long-lived UDP channel, connected to its cached address, over which any number
+ * of requests can be in flight. Message types configured for TCP go instead over a small pool
+ * of long-lived TCP connections to the peer, where requests are pipelined the same way. Every request carries a correlation ID that the peer echoes
+ * in its reply, and a single selector thread matches the replies to the waiting calls.
+ * A call is retried a bounded number of times with the same correlation ID,
+ * so a late reply to an earlier attempt still completes it.
+ *
+ * A peer that keeps failing has its circuit opened: calls to it fail immediately until
+ * Config.PEER_CIRCUIT_OPEN_MILLIS have passed, then a single trial call decides whether to close it again.
+ *
+ * Every reply is also passed to the reply listener, which reads what the peer piggybacked on it.
+ */
+public class PeerClient implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(CenterServer.class.getName());
+
+    private enum Circuit_State {CLOSED, OPEN, HALF_OPEN}
+
+    public interface ReplyListener {
+        void onReply(Server_ID id, PeerMessage reply);
+    }
+
+    private final Map<Server_ID, Peer> peers = new HashMap<>();
+    private final AtomicLong nextCorrelationID = new AtomicLong();
+    private final Selector selector;
+    private final ScheduledExecutorService timer;
+    private final Thread receiver;
+    private final ReplyListener replyListener;
+    private volatile boolean closed;
+
+    public PeerClient(Server_ID self, ReplyListener replyListener) throws IOException {
+        this.replyListener = replyListener;
+        this.selector = Selector.open();
+        for (Server_ID id : Server_ID.values()) {
+            if (id != self) {
+                Peer peer = new Peer(id, this::complete);
+                peer.channel.register(selector, SelectionKey.OP_READ, peer);
+                peers.put(id, peer);
+            }
+        }
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "PeerClient-timer-" + self);
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.receiver = new Thread(this::receive, "PeerClient-receiver-" + self);
+        this.receiver.setDaemon(true);
+        this.receiver.start();
+    }
+
+    /**
+     * Call the peer and wait for its reply
+     * Return null if the peer did not answer after every attempt or its circuit is open
+     */
+    public String call(Server_ID id, PeerMessage.Message_Type type, String... fields) {
+        try {
+            return callAsync(id, Config.PEER_TIMEOUT_MILLIS, Config.PEER_ATTEMPTS, type, fields).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof PeerMessage.MalformedMessageException)
+                LOGGER.severe(String.format(Config.LOG_PEER_MESSAGE_REJECTED, id, e.getCause().getMessage()));
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * Send the request to the peer, every attempt waits timeoutMillis for the reply
+     * The future fails with a TimeoutException once every attempt has timed out,
+     * or with a MalformedMessageException if the request does not fit in a datagram, or the reply did not
+     */
+    public CompletableFuture<String> callAsync(Server_ID id, long timeoutMillis, int attempts, PeerMessage.Message_Type type, String... fields) {
+        CompletableFuture<String> value = new CompletableFuture<>();
+        exchange(id, timeoutMillis, attempts, type, fields).whenComplete((reply, failure) -> {
+            if (failure == null)
+                value.complete(reply.getField(0));
+            else
+                value.completeExceptionally(failure);
+        });
+        return value;
+    }
+
+    /**
+     * Like callAsync, but the future gets the whole reply, for the requests answered with many fields
+     */
+    public CompletableFuture<PeerMessage> exchange(Server_ID id, long timeoutMillis, int attempts, PeerMessage.Message_Type type, String... fields) {
+        CompletableFuture<PeerMessage> reply = new CompletableFuture<>();
+        Peer peer = peers.get(id);
+        if (peer == null || closed) {
+            reply.completeExceptionally(new IOException("Unknown peer " + id));
+            return reply;
+        }
+        long correlationID = nextCorrelationID.incrementAndGet();
+        ByteBuffer request = allocate(type, fields);
+        try {
+            PeerMessage.encode(request, type, correlationID, fields);
+        } catch (PeerMessage.MalformedMessageException e) {
+            // Rejected before anything is sent, the peer is not to blame
+            reply.completeExceptionally(e);
+            return reply;
+        }
+        request.flip();
+        if (!peer.allowRequest()) {
+            reply.completeExceptionally(new IOException(String.format(Config.LOG_PEER_CIRCUIT_OPEN, id)));
+            return reply;
+        }
+        peer.pending.put(correlationID, reply);
+        reply.whenComplete((result, failure) -> {
+            peer.pending.remove(correlationID);
+            // A peer whose reply was too large did answer
+            if (failure == null || failure instanceof PeerMessage.MalformedMessageException)
+                peer.recordSuccess();
+            else
+                peer.recordFailure();
+        });
+        attempt(peer, type.getTransport(), request, reply, timeoutMillis, attempts);
+        return reply;
+    }
+
+    /**
+     * Send a one-way message, which the peer does not reply to
+     * Nothing is sent while the circuit of the peer is open, and a lost message is not retried
+     */
+    public void post(Server_ID id, PeerMessage.Message_Type type, String... fields) {
+        Peer peer = peers.get(id);
+        if (peer == null || closed || peer.isOpen())
+            return;
+        ByteBuffer message = allocate(type, fields);
+        try {
+            PeerMessage.encode(message, type, 0, fields);
+            message.flip();
+            if (type.getTransport() == Config.Transport.TCP)
+                peer.stream(message, (int) Config.PEER_TIMEOUT_MILLIS);
+            else
+                peer.send(message);
+        } catch (PeerMessage.MalformedMessageException e) {
+            LOGGER.severe(String.format(Config.LOG_PEER_MESSAGE_REJECTED, id, e.getMessage()));
+        } catch (IOException e) {
+            LOGGER.fine(e.getMessage());
+        }
+    }
+
+    /**
+     * A buffer the size of the message, encoding fails if it is larger than the type allows
+     */
+    private static ByteBuffer allocate(PeerMessage.Message_Type type, String... fields) {
+        return ByteBuffer.allocate(Math.min(PeerMessage.messageLength(fields), type.getMaxSize()));
+    }
+
+    private void attempt(Peer peer, Config.Transport transport, ByteBuffer request, CompletableFuture<PeerMessage> reply, long timeoutMillis, int attemptsLeft) {
+        try {
+            if (transport == Config.Transport.TCP)
+                peer.stream(request.duplicate(), (int) timeoutMillis);
+            else
+                peer.send(request.duplicate());
+        } catch (IOException e) {
+            // Counts as a lost request, the timeout below retries it
+            LOGGER.fine(e.getMessage());
+        }
+        timer.schedule(() -> {
+            if (reply.isDone())
+                return;
+            if (attemptsLeft > 1)
+                attempt(peer, transport, request, reply, timeoutMillis, attemptsLeft - 1);
+            else
+                reply.completeExceptionally(new TimeoutException(peer.id + " did not reply"));
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void receive() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(Config.UDP_BUFFER_SIZE);
+        while (!closed) {
+            try {
+                selector.select();
+                for (SelectionKey key : selector.selectedKeys()) {
+                    Peer peer = (Peer) key.attachment();
+                    while (true) {
+                        buffer.clear();
+                        int length;
+                        try {
+                            length = peer.channel.read(buffer);
+                        } catch (IOException e) {
+                            // e.g. the peer's port is unreachable, the pending calls will time out
+                            break;
+                        }
+                        if (length <= 0)
+                            break;
+                        buffer.flip();
+                        complete(peer, buffer);
+                    }
+                }
+                selector.selectedKeys().clear();
+            } catch (Exception e) {
+                if (!closed)
+                    LOGGER.severe(e.getMessage());
+            }
+        }
+    }
+
+    private void complete(Peer peer, ByteBuffer buffer) {
+        // Called by the selector thread for UDP, and by the reader thread of each connection for TCP
+        try {
+            PeerMessage message = PeerMessage.decode(buffer);
+            CompletableFuture<PeerMessage> reply = peer.pending.get(message.getCorrelationID());
+            if (message.getType() == PeerMessage.Message_Type.REPLY_TOO_LARGE && reply != null && message.getFieldCount() == 1) {
+                reply.completeExceptionally(new PeerMessage.MalformedMessageException(String.format("Reply of %s bytes is too large", message.getField(0))));
+                return;
+            }
+            if (message.getType() != PeerMessage.Message_Type.REPLY || message.getFieldCount() < 1)
+                return;
+            replyListener.onReply(peer.id, message);
+            if (reply != null)
+                reply.complete(message);
+        } catch (PeerMessage.MalformedMessageException e) {
+            LOGGER.fine(e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        selector.wakeup();
+        timer.shutdownNow();
+        for (Peer peer : peers.values()) {
+            peer.channel.close();
+            peer.closeConnections();
+        }
+        selector.close();
+    }
+
+    private interface Completer {
+        void complete(Peer peer, ByteBuffer buffer);
+    }
+
+    private static final class Peer {
+        private final Server_ID id;
+        private final DatagramChannel channel;
+        private final Completer completer;
+        private final PeerConnection[] connections = new PeerConnection[Config.TCP_CONNECTIONS_PER_PEER];
+        private int nextConnection;
+        private final Map<Long, CompletableFuture<PeerMessage>> pending = new ConcurrentHashMap<>();
+        private InetSocketAddress address;
+        private Circuit_State state = Circuit_State.CLOSED;
+        private int consecutiveFailures;
+        private long openUntil;
+
+        Peer(Server_ID id, Completer completer) throws IOException {
+            this.id = id;
+            this.completer = completer;
+            this.channel = DatagramChannel.open();
+            this.channel.configureBlocking(false);
+            this.channel.bind(null);
+        }
+
+        /**
+         * Resolve the address once and keep it, it is resolved again only after the circuit has opened
+         */
+        synchronized void send(ByteBuffer request) throws IOException {
+            if (address == null || address.isUnresolved()) {
+                address = new InetSocketAddress(Config.getHostnameByServerID(id), Config.getUDPPortByServerID(id));
+                if (address.isUnresolved())
+                    throw new IOException("Cannot resolve " + id);
+                if (channel.isConnected())
+                    channel.disconnect();
+                channel.connect(address);
+            }
+            channel.write(request);
+        }
+
+        /**
+         * Send the request over the next connection of the pool, opening it again if it broke
+         * The connection is opened without holding the peer, so that a slow connect does not hold up
+         * the datagrams and the other connections; if another thread opened the same one meanwhile, its connection is kept
+         */
+        void stream(ByteBuffer request, int connectTimeoutMillis) throws IOException {
+            int i;
+            PeerConnection connection;
+            synchronized (this) {
+                i = nextConnection;
+                nextConnection = (nextConnection + 1) % connections.length;
+                connection = connections[i];
+            }
+            if (connection == null || !connection.isOpen()) {
+                PeerConnection broken = connection;
+                InetSocketAddress tcpAddress = new InetSocketAddress(Config.getHostnameByServerID(id), Config.getTCPPortByServerID(id));
+                if (tcpAddress.isUnresolved())
+                    throw new IOException("Cannot resolve " + id);
+                PeerConnection opened = PeerConnection.open(tcpAddress, connectTimeoutMillis, message -> completer.complete(this, message), "PeerConnection-" + id + "-" + (i + 1));
+                synchronized (this) {
+                    if (connections[i] == broken) {
+                        connections[i] = opened;
+                        connection = opened;
+                    } else {
+                        connection = connections[i];
+                    }
+                }
+                if (connection != opened)
+                    opened.close();
+                if (connection == null)
+                    throw new IOException("Connections to " + id + " are closed");
+            }
+            connection.send(request);
+        }
+
+        synchronized void closeConnections() {
+            for (int i = 0; i < connections.length; i++) {
+                if (connections[i] != null)
+                    connections[i].close();
+                connections[i] = null;
+            }
+        }
+
+        synchronized boolean isOpen() {
+            return state == Circuit_State.OPEN && System.currentTimeMillis() < openUntil;
+        }
+
+        synchronized boolean allowRequest() {
+            switch (state) {
+                case OPEN:
+                    if (System.currentTimeMillis() < openUntil)
+                        return false;
+                    // Let a single trial call through
+                    state = Circuit_State.HALF_OPEN;
+                    return true;
+                case HALF_OPEN:
+                    return false;
+                default:
+                    return true;
+            }
+        }
+
+        synchronized void recordSuccess() {
+            if (state != Circuit_State.CLOSED)
+                LOGGER.info(String.format(Config.LOG_PEER_CIRCUIT_CLOSED, id));
+            state = Circuit_State.CLOSED;
+            consecutiveFailures = 0;
+        }
+
+        synchronized void recordFailure() {
+            consecutiveFailures++;
+            if (state == Circuit_State.HALF_OPEN || consecutiveFailures >= Config.PEER_FAILURE_THRESHOLD) {
+                if (state != Circuit_State.OPEN)
+                    LOGGER.info(String.format(Config.LOG_PEER_CIRCUIT_OPEN, id));
+                state = Circuit_State.OPEN;
+                openUntil = System.currentTimeMillis() + Config.PEER_CIRCUIT_OPEN_MILLIS;
+                // The peer may have moved, resolve it again and reconnect on the next trial
+                address = null;
+                closeConnections();
+            }
+        }
+    }
+}
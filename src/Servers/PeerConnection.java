@@ -0,0 +1,127 @@
+package Servers;
+
+import Utils.Config;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.logging.Logger;
+
+/**
+ * Long-lived TCP connection to another center, over which any number of requests can be pipelined.
+ *
+ * Messages are framed as [length: int][PeerMessage], replies may come back in any order
+ * and are matched to their calls by correlation ID, like over UDP.
+ * A reader thread passes every received message to the receiver until the connection breaks.
+ */
+final class PeerConnection implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(CenterServer.class.getName());
+
+    interface Receiver {
+        void receive(ByteBuffer message);
+    }
+
+    private final SocketChannel channel;
+    private final Thread reader;
+    private volatile boolean closed;
+
+    private PeerConnection(SocketChannel channel, Receiver receiver, String name) {
+        this.channel = channel;
+        this.reader = new Thread(() -> read(receiver), name);
+        this.reader.setDaemon(true);
+    }
+
+    static PeerConnection open(InetSocketAddress address, int connectTimeoutMillis, Receiver receiver, String name) throws IOException {
+        SocketChannel channel = SocketChannel.open();
+        try {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.socket().connect(address, connectTimeoutMillis);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        PeerConnection connection = new PeerConnection(channel, receiver, name);
+        connection.reader.start();
+        return connection;
+    }
+
+    boolean isOpen() {
+        return !closed;
+    }
+
+    void send(ByteBuffer message) throws IOException {
+        try {
+            writeFrame(channel, message);
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOGGER.fine(e.getMessage());
+        }
+    }
+
+    private void read(Receiver receiver) {
+        try {
+            ByteBuffer message;
+            while ((message = readFrame(channel, 0)) != null)
+                receiver.receive(message);
+        } catch (IOException e) {
+            if (!closed)
+                LOGGER.fine(e.getMessage());
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Read the next frame into a new buffer of at least minCapacity bytes
+     * Return null once the other side has closed the connection
+     */
+    static ByteBuffer readFrame(SocketChannel channel, int minCapacity) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+        if (!readFully(channel, header, true))
+            return null;
+        int length = header.getInt(0);
+        if (length <= 0 || length > Config.TCP_MAX_FRAME_SIZE)
+            throw new IOException("Frame of invalid length " + length);
+        ByteBuffer message = ByteBuffer.allocate(Math.max(length, minCapacity));
+        message.limit(length);
+        readFully(channel, message, false);
+        message.flip();
+        return message;
+    }
+
+    /**
+     * Write the message between the position and the limit of the buffer as one frame
+     * Writers of the same channel are serialized so that their frames never interleave
+     */
+    static void writeFrame(SocketChannel channel, ByteBuffer message) throws IOException {
+        ByteBuffer[] frame = {ByteBuffer.allocate(Integer.BYTES).putInt(0, message.remaining()), message};
+        synchronized (channel) {
+            while (frame[1].hasRemaining() || frame[0].hasRemaining())
+                channel.write(frame);
+        }
+    }
+
+    private static boolean readFully(SocketChannel channel, ByteBuffer buffer, boolean endAllowed) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                if (endAllowed && buffer.position() == 0)
+                    return false;
+                throw new EOFException("Connection closed in the middle of a frame");
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,219 @@
+package Servers;
+
+import Utils.Config;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary message exchanged between the servers over UDP or TCP.
+ *
+ * Layout, big-endian:
+ * [version: byte][type: byte][correlationID: long][field count: short][body length: int]
+ * followed by the fields, each as [byte length: int, -1 for null][UTF-8 bytes].
+ *
+ * Fields are encoded straight into the send buffer and decoded straight from the receive buffer,
+ * without an intermediate byte[] or String of the whole message. Any character is allowed in a field.
+ * A message larger than the buffer it is encoded into is rejected: one datagram of Config.UDP_BUFFER_SIZE bytes,
+ * or one frame of Config.TCP_MAX_FRAME_SIZE bytes for the types sent over TCP.
+ * A reply that would not fit is replaced by a REPLY_TOO_LARGE message carrying its length,
+ * so that the call fails right away instead of timing out.
+ */
+public final class PeerMessage {
+    public static final byte VERSION = 1;
+    public static final int HEADER_SIZE = 1 + 1 + Long.BYTES + Short.BYTES + Integer.BYTES;
+
+    public enum Message_Type {
+        GET_RECORDS_NUMBER(Config.FUNC_GET_RECORDS_NUMBER),
+        GET_RECORD_ID(Config.FUNC_GET_RECORD_ID),
+        REPLY("reply"),
+        GOSSIP_RECORD_COUNTS(Config.FUNC_GOSSIP_RECORD_COUNTS),
+        TRANSFER_RECORDS(Config.FUNC_TRANSFER_RECORDS),
+        LEASE_ID_BLOCK(Config.FUNC_LEASE_ID_BLOCK),
+        PULL_CHANGES(Config.FUNC_PULL_CHANGES),
+        PULL_SNAPSHOT(Config.FUNC_PULL_SNAPSHOT),
+        FIND_RECORD(Config.FUNC_FIND_RECORD),
+        QUERY_RECORDS(Config.FUNC_QUERY_RECORDS),
+        SHARE_RECORD_FILTER(Config.FUNC_SHARE_RECORD_FILTER),
+        REPLY_TOO_LARGE("reply too large");
+
+        private final String functionName;
+
+        Message_Type(String functionName) {
+            this.functionName = functionName;
+        }
+
+        public String getFunctionName() {
+            return functionName;
+        }
+
+        public Config.Transport getTransport() {
+            return Config.getTransportByFunction(functionName);
+        }
+
+        /**
+         * Largest message of the type, one datagram over UDP or one frame over TCP
+         */
+        public int getMaxSize() {
+            return getTransport() == Config.Transport.TCP ? Config.TCP_MAX_FRAME_SIZE : Config.UDP_BUFFER_SIZE;
+        }
+    }
+
+    /**
+     * The message could not be encoded in a datagram, or a received datagram is not a valid message
+     */
+    public static class MalformedMessageException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public MalformedMessageException(String message) {
+            super(message);
+        }
+    }
+
+    // Coders are stateful, every thread reuses its own pair
+    private static final ThreadLocal<CharsetEncoder> ENCODER = ThreadLocal.withInitial(StandardCharsets.UTF_8::newEncoder);
+    private static final ThreadLocal<CharsetDecoder> DECODER = ThreadLocal.withInitial(StandardCharsets.UTF_8::newDecoder);
+    private static final Message_Type[] TYPES = Message_Type.values();
+
+    private final Message_Type type;
+    private final long correlationID;
+    private final String[] fields;
+
+    private PeerMessage(Message_Type type, long correlationID, String[] fields) {
+        this.type = type;
+        this.correlationID = correlationID;
+        this.fields = fields;
+    }
+
+    public Message_Type getType() {
+        return type;
+    }
+
+    public long getCorrelationID() {
+        return correlationID;
+    }
+
+    public int getFieldCount() {
+        return fields.length;
+    }
+
+    public String getField(int i) {
+        return fields[i];
+    }
+
+    /**
+     * Number of bytes the field takes in a message, so that a sender can fill a datagram without overflowing it
+     */
+    public static int encodedLength(String field) {
+        if (field == null)
+            return Integer.BYTES;
+        int length = Integer.BYTES;
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c < 0x80)
+                length += 1;
+            else if (c < 0x800)
+                length += 2;
+            else if (Character.isHighSurrogate(c) && i + 1 < field.length() && Character.isLowSurrogate(field.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else
+                length += 3;
+        }
+        return length;
+    }
+
+    /**
+     * Number of bytes a message with these fields takes, header included
+     */
+    public static int messageLength(String... fields) {
+        int length = HEADER_SIZE;
+        for (String field : fields)
+            length += encodedLength(field);
+        return length;
+    }
+
+    /**
+     * Encode the message at the position of the buffer, which is left after the message
+     */
+    public static void encode(ByteBuffer out, Message_Type type, long correlationID, String... fields) throws MalformedMessageException {
+        int start = out.position();
+        try {
+            if (fields.length > Short.MAX_VALUE)
+                throw new MalformedMessageException("Too many fields: " + fields.length);
+            out.put(VERSION).put((byte) type.ordinal()).putLong(correlationID).putShort((short) fields.length);
+            int bodyLengthPosition = out.position();
+            out.putInt(0);
+
+            CharsetEncoder encoder = ENCODER.get();
+            for (String field : fields) {
+                if (field == null) {
+                    out.putInt(-1);
+                    continue;
+                }
+                int lengthPosition = out.position();
+                out.putInt(0);
+                encoder.reset();
+                CoderResult result = encoder.encode(CharBuffer.wrap(field), out, true);
+                if (result.isUnderflow())
+                    result = encoder.flush(out);
+                if (result.isOverflow())
+                    throw new BufferOverflowException();
+                if (result.isError())
+                    throw new MalformedMessageException("Field cannot be encoded: " + result);
+                out.putInt(lengthPosition, out.position() - lengthPosition - Integer.BYTES);
+            }
+            out.putInt(bodyLengthPosition, out.position() - start - HEADER_SIZE);
+        } catch (BufferOverflowException e) {
+            out.position(start);
+            throw new MalformedMessageException(String.format("%s message larger than %d bytes", type, out.capacity()));
+        }
+    }
+
+    /**
+     * Decode the message between the position and the limit of the buffer
+     */
+    public static PeerMessage decode(ByteBuffer in) throws MalformedMessageException {
+        try {
+            byte version = in.get();
+            if (version != VERSION)
+                throw new MalformedMessageException("Unsupported version " + version);
+            int typeOrdinal = in.get();
+            if (typeOrdinal < 0 || typeOrdinal >= TYPES.length)
+                throw new MalformedMessageException("Unknown message type " + typeOrdinal);
+            long correlationID = in.getLong();
+            int fieldCount = in.getShort();
+            int bodyLength = in.getInt();
+            if (fieldCount < 0 || bodyLength != in.remaining())
+                throw new MalformedMessageException("Truncated message");
+
+            CharsetDecoder decoder = DECODER.get();
+            String[] fields = new String[fieldCount];
+            for (int i = 0; i < fieldCount; i++) {
+                int length = in.getInt();
+                if (length == -1)
+                    continue;
+                if (length < 0 || length > in.remaining())
+                    throw new MalformedMessageException("Truncated field " + i);
+                // Decode the field in place, through a view limited to its bytes
+                ByteBuffer field = in.duplicate();
+                field.limit(in.position() + length);
+                fields[i] = decoder.decode(field).toString();
+                in.position(in.position() + length);
+            }
+            return new PeerMessage(TYPES[typeOrdinal], correlationID, fields);
+        } catch (BufferUnderflowException e) {
+            throw new MalformedMessageException("Truncated message");
+        } catch (CharacterCodingException e) {
+            throw new MalformedMessageException("Field is not valid UTF-8");
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package Servers;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Handler of the requests other centers send over UDP or TCP
+ */
+public interface PeerRequestHandler {
+    /**
+     * On entry the buffer holds the request between its position and its limit
+     * Return the buffer holding the reply the same way, with nothing remaining if there is no reply
+     * The reply is written in place of the request when it fits, the buffer has room for at least Config.UDP_BUFFER_SIZE bytes
+     */
+    ByteBuffer handle(ByteBuffer buffer);
+}
@@ -0,0 +1,188 @@
+package Servers;
+
+import Utils.Config;
+import Utils.Config.Server_ID;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Background rebalancer moving records from this center to the least loaded one.
+ *
+ * Every Config.REBALANCE_INTERVAL_MILLIS it compares the record count of its center with the gossiped counts
+ * of the other centers. A center holding more than (1 + Config.REBALANCE_THRESHOLD) times the average
+ * moves records to the least loaded center until one of them reaches the average. At most
+ * Config.REBALANCE_RECORDS_PER_SECOND records are moved per second, in slices.
+ *
+ * Records are moved with the same transfers as transferRecord: only the records of the slice in flight
+ * are frozen, every other record can still be read, edited and transferred during the move.
+ * Records are picked in recordID order from where the previous slice stopped, wrapping around.
+ */
+public class Rebalancer {
+    private static final Logger LOGGER = Logger.getLogger(CenterServer.class.getName());
+
+    public enum Rebalance_State {IDLE, WAITING_FOR_COUNTS, MOVING}
+
+    public interface Mover {
+        /**
+         * Transfer the records to the remote center, return how many were transferred
+         * The records are spread over the shards of the center if it is sharded
+         */
+        int move(List<String> recordIDs, Server_ID remoteServerID);
+    }
+
+    private final Server_ID self;
+    private final RecordStore recordStore;
+    private final ClusterRecordCounts recordCounts;
+    private final Mover mover;
+    private final AtomicLong movedRecords = new AtomicLong();
+    private ScheduledExecutorService scheduler;
+    private int cursor = -1;
+    private volatile Rebalance_State state = Rebalance_State.IDLE;
+    private volatile Server_ID target;
+    private volatile long remaining;
+
+    public Rebalancer(Server_ID self, RecordStore recordStore, ClusterRecordCounts recordCounts, Mover mover) {
+        this.self = self;
+        this.recordStore = recordStore;
+        this.recordCounts = recordCounts;
+        this.mover = mover;
+    }
+
+    public synchronized void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Rebalancer-" + self);
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::rebalance, Config.REBALANCE_INTERVAL_MILLIS, Config.REBALANCE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null)
+            scheduler.shutdownNow();
+    }
+
+    public String getStatus() {
+        Server_ID currentTarget = target;
+        return String.format(Config.REBALANCE_STATUS, self, state, currentTarget == null ? "-" : currentTarget, remaining, movedRecords.get());
+    }
+
+    private void rebalance() {
+        try {
+            long budget = Config.REBALANCE_RECORDS_PER_SECOND * Config.REBALANCE_INTERVAL_MILLIS / 1000;
+            long started = System.nanoTime();
+            long toMove = plan();
+            long moved = 0;
+            while (toMove > 0 && moved < budget) {
+                int slice = (int) Math.min(Math.min(toMove, budget - moved), Config.REBALANCE_SLICE_SIZE);
+                List<String> recordIDs = pick(slice);
+                if (recordIDs.isEmpty())
+                    break;
+                int count = mover.move(recordIDs, target);
+                if (count == 0)
+                    // The target is unreachable or every picked record was busy, try again on the next pass
+                    break;
+                moved += count;
+                toMove -= count;
+                remaining = toMove;
+                movedRecords.addAndGet(count);
+
+                // Spread the slices over the pass instead of moving the whole budget at once
+                long due = started + TimeUnit.MILLISECONDS.toNanos(moved * 1000 / Config.REBALANCE_RECORDS_PER_SECOND);
+                long wait = due - System.nanoTime();
+                if (wait > 0)
+                    TimeUnit.NANOSECONDS.sleep(wait);
+            }
+            if (moved > 0 && toMove <= 0) {
+                state = Rebalance_State.IDLE;
+                target = null;
+            }
+            if (moved > 0)
+                LOGGER.info(getStatus());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // Keep the rebalancer scheduled
+            LOGGER.severe(e.getMessage());
+        }
+    }
+
+    /**
+     * Choose the target center and the number of records to move to it, 0 if the centers are balanced enough
+     * The load of a sharded center is the sum of its shards, each shard moves its share of the excess
+     */
+    private long plan() {
+        long local = recordCounts.getLocal();
+        Server_ID ownCenter = self.getCenter();
+        long ownCount = 0;
+        long total = 0;
+        Server_ID lightest = null;
+        long lightestCount = Long.MAX_VALUE;
+        Server_ID[] centers = Server_ID.centers();
+        for (Server_ID center : centers) {
+            long count = 0;
+            for (Server_ID shard : center.getShards()) {
+                long shardCount = shard == self ? local : recordCounts.get(shard, Config.RECORD_COUNTS_MAX_STALENESS_MILLIS);
+                if (shardCount < 0) {
+                    // Never move records on counts that may be outdated
+                    state = Rebalance_State.WAITING_FOR_COUNTS;
+                    target = null;
+                    remaining = 0;
+                    return 0;
+                }
+                count += shardCount;
+            }
+            total += count;
+            if (center == ownCenter) {
+                ownCount = count;
+            } else if (count < lightestCount) {
+                lightest = center;
+                lightestCount = count;
+            }
+        }
+
+        long average = total / centers.length;
+        long toMove = ownCount == 0 ? 0 : Math.min(ownCount - average, average - lightestCount) * local / ownCount;
+        if (lightest == null || ownCount <= average * (1 + Config.REBALANCE_THRESHOLD) || toMove < Config.REBALANCE_MIN_RECORDS) {
+            state = Rebalance_State.IDLE;
+            target = null;
+            remaining = 0;
+            return 0;
+        }
+        state = Rebalance_State.MOVING;
+        target = lightest;
+        remaining = toMove;
+        return toMove;
+    }
+
+    /**
+     * Next records after the cursor, wrapping around to the first record once the last one is passed
+     * and stopping before the records the first pass started after, so that no record is picked twice
+     */
+    private List<String> pick(int count) {
+        List<String> recordIDs = new ArrayList<>(count);
+        int start = cursor;
+        try (RecordStore.Snapshot snapshot = recordStore.snapshot()) {
+            for (int pass = 0; pass < 2 && recordIDs.size() < count; pass++) {
+                Iterator<Record> records = snapshot.recordsAfter(cursor);
+                while (records.hasNext() && recordIDs.size() < count) {
+                    Record record = records.next();
+                    if (pass == 1 && RecordIndex.keyOf(record.getRecordID()) > start)
+                        break;
+                    recordIDs.add(record.getRecordID());
+                    cursor = RecordIndex.keyOf(record.getRecordID());
+                }
+                if (recordIDs.size() < count)
+                    cursor = -1;
+            }
+        }
+        return recordIDs;
+    }
+}
@@ -47,4 +47,12 @@ public class Record implements Serializable {
     public Record_Type getRecordType() {
         return this.recordType;
     }
+
+    /**
+     * Stored records are never modified in place,
+     * an edit is applied to a copy which then replaces the stored record
+     */
+    public Record copy() {
+        return new Record(recordID, firstName, lastName, recordType);
+    }
 }
@@ -0,0 +1,63 @@
+package Servers;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Compact binary encoding of records, shared by everything that persists or ships them.
+ *
+ * A record is written as its type followed by its fields in declaration order.
+ * Each field is a presence flag followed by the modified UTF-8 string, so null fields survive a round trip.
+ */
+public class RecordCodec {
+    private static final byte TEACHER = 'T';
+    private static final byte STUDENT = 'S';
+
+    private RecordCodec() {}
+
+    public static void write(DataOutput out, Record record) throws IOException {
+        if (record.getRecordType() == Record.Record_Type.TEACHER) {
+            TeacherRecord teacherRecord = (TeacherRecord) record;
+            out.writeByte(TEACHER);
+            writeString(out, teacherRecord.getRecordID());
+            writeString(out, teacherRecord.getFirstName());
+            writeString(out, teacherRecord.getLastName());
+            writeString(out, teacherRecord.getAddress());
+            writeString(out, teacherRecord.getPhone());
+            writeString(out, teacherRecord.getSpecialization());
+            writeString(out, teacherRecord.getLocation());
+        } else {
+            StudentRecord studentRecord = (StudentRecord) record;
+            out.writeByte(STUDENT);
+            writeString(out, studentRecord.getRecordID());
+            writeString(out, studentRecord.getFirstName());
+            writeString(out, studentRecord.getLastName());
+            writeString(out, studentRecord.getCoursesRegistered());
+            writeString(out, studentRecord.getStatus());
+            writeString(out, studentRecord.getStatusDate());
+        }
+    }
+
+    public static Record read(DataInput in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case TEACHER:
+                return new TeacherRecord(readString(in), readString(in), readString(in), readString(in), readString(in), readString(in), readString(in));
+            case STUDENT:
+                return new StudentRecord(readString(in), readString(in), readString(in), readString(in), readString(in), readString(in));
+            default:
+                throw new IOException("Unknown record type " + type);
+        }
+    }
+
+    public static void writeString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null)
+            out.writeUTF(value);
+    }
+
+    public static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,107 @@
+package Servers;
+
+import Utils.Config;
+
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter of the record IDs held by a server, shared with the other servers of the cluster.
+ *
+ * A lookup only asks the servers whose filter may contain the record: a filter never misses a record
+ * added to it, and wrongly matches about one ID in a hundred for Config.RECORD_FILTER_BITS / 10 records.
+ * Records cannot be removed from a filter, the owner rebuilds its filter from its records once enough
+ * of them have been transferred away. Records are added without locking, from any thread.
+ */
+public class RecordFilter {
+    private final AtomicLongArray words;
+    private final int mask;
+
+    public RecordFilter() {
+        this(new AtomicLongArray(Config.RECORD_FILTER_BITS / Long.SIZE));
+    }
+
+    private RecordFilter(AtomicLongArray words) {
+        this.words = words;
+        this.mask = words.length() * Long.SIZE - 1;
+    }
+
+    public void add(String recordID) {
+        int key = RecordIndex.keyOf(recordID);
+        if (key < 0)
+            return;
+        int h1 = mix(key);
+        int h2 = mix(h1) | 1;
+        for (int i = 0; i < Config.RECORD_FILTER_HASHES; i++) {
+            int bit = (h1 + i * h2) & mask;
+            long word = words.get(bit >>> 6);
+            long flag = 1L << bit;
+            while ((word & flag) == 0 && !words.compareAndSet(bit >>> 6, word, word | flag))
+                word = words.get(bit >>> 6);
+        }
+    }
+
+    /**
+     * Return false only if the record was never added
+     */
+    public boolean mightContain(String recordID) {
+        int key = RecordIndex.keyOf(recordID);
+        if (key < 0)
+            return false;
+        int h1 = mix(key);
+        int h2 = mix(h1) | 1;
+        for (int i = 0; i < Config.RECORD_FILTER_HASHES; i++) {
+            int bit = (h1 + i * h2) & mask;
+            if ((words.get(bit >>> 6) & (1L << bit)) == 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * The bits of the filter as a message field
+     */
+    public String encode() {
+        byte[] bytes = new byte[words.length() * Long.BYTES];
+        for (int i = 0; i < words.length(); i++) {
+            long word = words.get(i);
+            for (int j = 0; j < Long.BYTES; j++)
+                bytes[i * Long.BYTES + j] = (byte) (word >>> (j * 8));
+        }
+        return Base64.getEncoder().encodeToString(bytes);
+    }
+
+    /**
+     * Return the filter encoded in the field, or null if it is not a filter of this cluster
+     */
+    public static RecordFilter decode(String field) {
+        byte[] bytes;
+        try {
+            bytes = Base64.getDecoder().decode(field);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return null;
+        }
+        if (bytes.length != Config.RECORD_FILTER_BITS / Byte.SIZE)
+            return null;
+        AtomicLongArray words = new AtomicLongArray(bytes.length / Long.BYTES);
+        for (int i = 0; i < words.length(); i++) {
+            long word = 0;
+            for (int j = Long.BYTES - 1; j >= 0; j--)
+                word = (word << 8) | (bytes[i * Long.BYTES + j] & 0xFF);
+            words.set(i, word);
+        }
+        return new RecordFilter(words);
+    }
+
+    /**
+     * Finalizer of MurmurHash3, spreads consecutive record numbers over the whole filter
+     */
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -0,0 +1,214 @@
+package Servers;
+
+import Utils.Config;
+import Utils.Config.Server_ID;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Allocator of record IDs for one center, out of blocks of consecutive numbers leased from the cluster.
+ *
+ * A block of Config.RECORD_ID_BLOCK_SIZE numbers is leased to a single center, which hands them out
+ * with an atomic add, so creating records never involves the other centers. Once half of the block
+ * is used the next one is leased in the background, a create only waits for a lease when the whole
+ * block was used before it came back. Leases are prefetched by a thread of the allocator, stopped by close.
+ *
+ * Leased numbers are never leased again, even to the same center after a restart:
+ * a restarted center leases a new block and the rest of its previous one is simply never used.
+ */
+public class RecordIDAllocator {
+    public interface Lessor {
+        /**
+         * Lease a block of Config.RECORD_ID_BLOCK_SIZE numbers, all greater than floor
+         * Return the first number of the block, or -1 if no block can be leased right now
+         */
+        int lease(int floor);
+    }
+
+    private static final Block EMPTY = new Block(0, 0);
+
+    private final Lessor lessor;
+    private final ExecutorService prefetcher;
+    private final AtomicInteger floor = new AtomicInteger(-1);
+    private volatile Block current = EMPTY;
+    private Block prefetched;
+    private boolean prefetching;
+
+    public RecordIDAllocator(Server_ID serverID, Lessor lessor) {
+        this.lessor = lessor;
+        this.prefetcher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "RecordIDPrefetch-" + serverID);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Stop prefetching, the numbers already leased can still be handed out
+     */
+    public void close() {
+        prefetcher.shutdownNow();
+    }
+
+    /**
+     * Return the next number of this center, or -1 if its block is used up and no other one can be leased
+     */
+    public int next() {
+        while (true) {
+            Block block = current;
+            long number = block.next.getAndIncrement();
+            if (number < block.end) {
+                if (number == block.refillAt)
+                    prefetch();
+                return (int) number;
+            }
+            if (!renew(block))
+                return -1;
+        }
+    }
+
+    /**
+     * Reserve count numbers of this center, with a single atomic add unless the block runs out
+     * Return null if they cannot all be reserved, the numbers already taken are then never handed out
+     */
+    public int[] reserve(int count) {
+        int[] numbers = new int[count];
+        int filled = 0;
+        while (filled < count) {
+            Block block = current;
+            long first = block.next.getAndAdd(count - filled);
+            long last = Math.min(first + count - filled, block.end);
+            for (long number = first; number < last; number++)
+                numbers[filled++] = (int) number;
+            if (first <= block.refillAt && block.refillAt < last)
+                prefetch();
+            if (filled < count && !renew(block))
+                return null;
+        }
+        return numbers;
+    }
+
+    /**
+     * Make sure no block leased from now on contains the number, nor any number before it
+     * Used when recovering records, which may have been created before the last lease
+     */
+    public void advancePast(int number) {
+        floor.accumulateAndGet(number, Math::max);
+    }
+
+    /**
+     * Next number of the current block, or the first number a new lease could start at
+     */
+    public int peek() {
+        Block block = current;
+        long number = block.next.get();
+        return number < block.end ? (int) number : floor.get() + 1;
+    }
+
+    /**
+     * Drop the current block, the next numbers come from a block starting at recordID or after
+     */
+    public synchronized void set(int recordID) {
+        advancePast(recordID - 1);
+        current = EMPTY;
+        prefetched = null;
+    }
+
+    /**
+     * Switch to the prefetched block, or lease one right away if there is none
+     * Return false if the block is used up and no other one could be leased
+     */
+    private synchronized boolean renew(Block exhausted) {
+        if (current != exhausted)
+            return true;
+        Block block = prefetched;
+        prefetched = null;
+        if (block == null) {
+            block = lease();
+            if (block == null)
+                return false;
+        }
+        current = block;
+        return true;
+    }
+
+    private void prefetch() {
+        synchronized (this) {
+            if (prefetching || prefetched != null)
+                return;
+            prefetching = true;
+        }
+        try {
+            prefetcher.execute(() -> {
+                Block block = lease();
+                synchronized (this) {
+                    prefetching = false;
+                    if (block != null && prefetched == null)
+                        prefetched = block;
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Closed, the next block is leased when the current one is used up
+            synchronized (this) {
+                prefetching = false;
+            }
+        }
+    }
+
+    private Block lease() {
+        int first = lessor.lease(floor.get());
+        if (first < 0)
+            return null;
+        advancePast(first + Config.RECORD_ID_BLOCK_SIZE - 1);
+        return new Block(first, first + Config.RECORD_ID_BLOCK_SIZE);
+    }
+
+    public static String studentRecordID(int number) {
+        return format(Config.STUDENT_RECORD_PREFIX, number);
+    }
+
+    public static String teacherRecordID(int number) {
+        return format(Config.TEACHER_RECORD_PREFIX, number);
+    }
+
+    /**
+     * Equivalent to String.format("%s%05d", prefix, number) without parsing a format string
+     */
+    public static String format(String prefix, int number) {
+        char[] digits = new char[10];
+        int length = 0;
+        do {
+            digits[length++] = (char) ('0' + number % 10);
+            number /= 10;
+        } while (number > 0);
+
+        int width = Math.max(length, Config.RECORD_ID_DIGITS);
+        char[] id = new char[prefix.length() + width];
+        prefix.getChars(0, prefix.length(), id, 0);
+        int pos = prefix.length();
+        for (int i = length; i < width; i++)
+            id[pos++] = '0';
+        while (length > 0)
+            id[pos++] = digits[--length];
+        return new String(id);
+    }
+
+    /**
+     * Leased numbers [first, end), next may run past the end when several threads race for the last ones
+     */
+    private static final class Block {
+        private final long end;
+        private final long refillAt;
+        private final AtomicLong next;
+
+        Block(long first, long end) {
+            this.end = end;
+            this.refillAt = first + (end - first) / 2;
+            this.next = new AtomicLong(first);
+        }
+    }
+}
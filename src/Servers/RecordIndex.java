@@ -0,0 +1,189 @@
+package Servers;
+
+import java.util.Arrays;
+
+/**
+ * Primary-key index from recordID to Record.
+ *
+ * Records are keyed on the numeric part of their ID (SR00003 -> 3), which is unique
+ * across the cluster because every center allocates from its own stride of the sequence.
+ * Keys are stored in a primitive int[] using open addressing with linear probing,
+ * so a lookup costs one hash and a short probe without boxing.
+ *
+ * This class is not thread-safe, callers are responsible for locking.
+ * Readers may probe it optimistically as long as they validate the result afterwards.
+ */
+public class RecordIndex {
+    private static final int EMPTY = -1;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private volatile Table table;
+    private int size;
+
+    /**
+     * Keys and values are published together so that a reader holding a Table
+     * never sees the arrays of two different generations during a resize
+     */
+    private static final class Table {
+        final int[] keys;
+        final Record[] values;
+        final int threshold;
+
+        Table(int capacity) {
+            keys = new int[capacity];
+            Arrays.fill(keys, EMPTY);
+            values = new Record[capacity];
+            threshold = (int) (capacity * LOAD_FACTOR);
+        }
+    }
+
+    public RecordIndex() {
+        this(64);
+    }
+
+    public RecordIndex(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        table = new Table(capacity);
+    }
+
+    /**
+     * Extract the numeric key of a recordID, e.g. SR00003 -> 3
+     * Return -1 if the recordID is not well-formed
+     */
+    public static int keyOf(String recordID) {
+        if (recordID == null || recordID.length() < 3)
+            return -1;
+        int key = 0;
+        for (int i = 2; i < recordID.length(); i++) {
+            char c = recordID.charAt(i);
+            if (c < '0' || c > '9' || key > (Integer.MAX_VALUE - 9) / 10)
+                return -1;
+            key = key * 10 + (c - '0');
+        }
+        return key;
+    }
+
+    public Record get(String recordID) {
+        int key = keyOf(recordID);
+        if (key < 0)
+            return null;
+        return matching(get(key), recordID);
+    }
+
+    /**
+     * The numeric part is shared by SR and TR IDs, make sure the prefix matches as well
+     */
+    public static Record matching(Record record, String recordID) {
+        if (record != null && record.getRecordID().equals(recordID))
+            return record;
+        return null;
+    }
+
+    /**
+     * Probe for the key without dereferencing the record.
+     * Safe to call under an optimistic read: the probe always terminates
+     * because the table is never full, and the result must be validated afterwards.
+     */
+    public Record get(int key) {
+        Table t = table;
+        int[] keys = t.keys;
+        int mask = keys.length - 1;
+        for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+            int k = keys[i];
+            if (k == key)
+                return t.values[i];
+            if (k == EMPTY)
+                return null;
+        }
+    }
+
+    /**
+     * Insert or replace the record under its key
+     * Return the previous record, or null if there was none
+     */
+    public Record put(Record record) {
+        int key = keyOf(record.getRecordID());
+        if (key < 0)
+            throw new IllegalArgumentException("Malformed recordID " + record.getRecordID());
+        Table t = table;
+        int[] keys = t.keys;
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key) {
+                Record previous = t.values[i];
+                t.values[i] = record;
+                return previous;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        t.values[i] = record;
+        if (++size > t.threshold)
+            resize(keys.length << 1);
+        return null;
+    }
+
+    /**
+     * Remove the record with the given recordID
+     * Return the removed record, or null if it was not indexed
+     */
+    public Record remove(String recordID) {
+        int key = keyOf(recordID);
+        if (key < 0)
+            return null;
+        Table t = table;
+        int[] keys = t.keys;
+        Record[] values = t.values;
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (keys[i] != key) {
+            if (keys[i] == EMPTY)
+                return null;
+            i = (i + 1) & mask;
+        }
+        Record removed = values[i];
+        if (!removed.getRecordID().equals(recordID))
+            return null;
+
+        // Backward-shift deletion keeps probe sequences intact without tombstones
+        int gap = i;
+        for (int j = (gap + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+            int home = mix(keys[j]) & mask;
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                gap = j;
+            }
+        }
+        keys[gap] = EMPTY;
+        values[gap] = null;
+        size--;
+        return removed;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void resize(int capacity) {
+        Table old = table;
+        Table t = new Table(capacity);
+        int mask = capacity - 1;
+        for (int j = 0; j < old.keys.length; j++) {
+            if (old.keys[j] != EMPTY) {
+                int i = mix(old.keys[j]) & mask;
+                while (t.keys[i] != EMPTY)
+                    i = (i + 1) & mask;
+                t.keys[i] = old.keys[j];
+                t.values[i] = old.values[j];
+            }
+        }
+        table = t;
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,481 @@
+package Servers;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Record storage of a center server.
+ *
+ * Records are grouped by the initial of their last name into buckets.
+ * Each bucket is its own write lock: writers of different initials never contend,
+ * while readers iterate the bucket's concurrent map without taking any lock.
+ *
+ * The primary-key index is split into segments, each guarded by a StampedLock.
+ * Lookups use optimistic reads, so they never wait for writers of unrelated records.
+ * Secondary indexes on status, specialization, location and last name are kept
+ * up to date by the same writes.
+ *
+ * Every write installs a new version of the record, stamped from a global clock.
+ * A Snapshot only sees the versions stamped at or before the moment it was opened,
+ * so long reads get a point-in-time view of the whole store without blocking writers.
+ * Old versions are pruned once no open snapshot can see them anymore.
+ */
+public class RecordStore {
+    private static final int INDEX_SEGMENTS = 32;
+    private static final long PENDING = Long.MAX_VALUE;
+
+    private final ConcurrentMap<Character, Bucket> buckets = new ConcurrentHashMap<>();
+    private final RecordIndex[] indexSegments = new RecordIndex[INDEX_SEGMENTS];
+    private final StampedLock[] indexLocks = new StampedLock[INDEX_SEGMENTS];
+    private final SecondaryIndex secondaryIndex = new SecondaryIndex();
+
+    private final AtomicLong clock = new AtomicLong();
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+    private final TreeMap<Long, Integer> openSnapshots = new TreeMap<>();
+    private final Queue<Tombstone> tombstones = new ConcurrentLinkedQueue<>();
+    /**
+     * Every open snapshot, and every snapshot opened later, has a version >= horizon
+     */
+    private volatile long horizon;
+
+    /**
+     * Records sharing the same last name initial, ordered by recordID number.
+     * Writers must hold the monitor of the bucket.
+     */
+    public static final class Bucket {
+        private final char initial;
+        private final ConcurrentSkipListMap<Integer, Version> versions = new ConcurrentSkipListMap<>();
+
+        private Bucket(char initial) {
+            this.initial = initial;
+        }
+
+        public char getInitial() {
+            return this.initial;
+        }
+    }
+
+    /**
+     * One version of a record, newest first. A null record marks a removal.
+     */
+    private static final class Version {
+        final Record record;
+        volatile Version previous;
+        volatile long stamp = PENDING;
+
+        Version(Record record, Version previous) {
+            this.record = record;
+            this.previous = previous;
+        }
+
+        long committedStamp() {
+            long s;
+            // The writer stamps the version right after installing it
+            while ((s = stamp) == PENDING)
+                Thread.yield();
+            return s;
+        }
+    }
+
+    private static final class Tombstone {
+        final Bucket bucket;
+        final int key;
+        final Version version;
+
+        Tombstone(Bucket bucket, int key, Version version) {
+            this.bucket = bucket;
+            this.key = key;
+            this.version = version;
+        }
+    }
+
+    /**
+     * Consistent point-in-time view of the store.
+     * Must be closed, otherwise the versions it can see are never pruned.
+     */
+    public final class Snapshot implements AutoCloseable {
+        private final long version;
+        private boolean closed;
+
+        private Snapshot(long version) {
+            this.version = version;
+        }
+
+        public long getVersion() {
+            return this.version;
+        }
+
+        public Iterable<Bucket> buckets() {
+            return buckets.values();
+        }
+
+        /**
+         * Records of the bucket as of this snapshot, ordered by recordID number
+         */
+        public Iterable<Record> records(Bucket bucket) {
+            return () -> new VisibleIterator(bucket.versions.values().iterator(), version);
+        }
+
+        /**
+         * Records of every bucket whose recordID number is greater than the given key,
+         * in ascending recordID number order
+         */
+        public Iterator<Record> recordsAfter(int key) {
+            PriorityQueue<BucketCursor> cursors = new PriorityQueue<>();
+            for (Bucket bucket : buckets.values()) {
+                BucketCursor cursor = new BucketCursor(bucket.versions.tailMap(key, false).entrySet().iterator(), version);
+                if (cursor.advance())
+                    cursors.add(cursor);
+            }
+            return new MergeIterator(cursors);
+        }
+
+        public Record get(String recordID) {
+            int key = RecordIndex.keyOf(recordID);
+            for (Bucket bucket : buckets.values()) {
+                Version head = bucket.versions.get(key);
+                if (head != null)
+                    return RecordIndex.matching(visible(head, version), recordID);
+            }
+            return null;
+        }
+
+        public int size() {
+            int size = 0;
+            for (Bucket bucket : buckets.values())
+                for (Record ignored : records(bucket))
+                    size++;
+            return size;
+        }
+
+        @Override
+        public void close() {
+            if (closed)
+                return;
+            closed = true;
+            snapshotLock.lock();
+            try {
+                Integer count = openSnapshots.get(version);
+                if (count == 1)
+                    openSnapshots.remove(version);
+                else
+                    openSnapshots.put(version, count - 1);
+                horizon = openSnapshots.isEmpty() ? clock.get() : openSnapshots.firstKey();
+            } finally {
+                snapshotLock.unlock();
+            }
+            vacuum();
+        }
+    }
+
+    private static final class VisibleIterator implements Iterator<Record> {
+        private final Iterator<Version> heads;
+        private final long version;
+        private Record next;
+
+        VisibleIterator(Iterator<Version> heads, long version) {
+            this.heads = heads;
+            this.version = version;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && heads.hasNext())
+                next = visible(heads.next(), version);
+            return next != null;
+        }
+
+        @Override
+        public Record next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            Record record = next;
+            next = null;
+            return record;
+        }
+    }
+
+    /**
+     * Position in one bucket while merging buckets by recordID number
+     */
+    private static final class BucketCursor implements Comparable<BucketCursor> {
+        private final Iterator<Map.Entry<Integer, Version>> entries;
+        private final long version;
+        int key;
+        Record record;
+
+        BucketCursor(Iterator<Map.Entry<Integer, Version>> entries, long version) {
+            this.entries = entries;
+            this.version = version;
+        }
+
+        boolean advance() {
+            while (entries.hasNext()) {
+                Map.Entry<Integer, Version> entry = entries.next();
+                record = visible(entry.getValue(), version);
+                if (record != null) {
+                    key = entry.getKey();
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public int compareTo(BucketCursor other) {
+            return Integer.compare(key, other.key);
+        }
+    }
+
+    private static final class MergeIterator implements Iterator<Record> {
+        private final PriorityQueue<BucketCursor> cursors;
+
+        MergeIterator(PriorityQueue<BucketCursor> cursors) {
+            this.cursors = cursors;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !cursors.isEmpty();
+        }
+
+        @Override
+        public Record next() {
+            BucketCursor cursor = cursors.poll();
+            if (cursor == null)
+                throw new NoSuchElementException();
+            Record record = cursor.record;
+            if (cursor.advance())
+                cursors.add(cursor);
+            return record;
+        }
+    }
+
+    public RecordStore() {
+        for (int i = 0; i < INDEX_SEGMENTS; i++) {
+            indexSegments[i] = new RecordIndex();
+            indexLocks[i] = new StampedLock();
+        }
+    }
+
+    public static char initialOf(String lastName) {
+        return Character.toUpperCase(lastName.charAt(0));
+    }
+
+    public Bucket getBucket(char lastNameInitial) {
+        Bucket bucket = buckets.get(lastNameInitial);
+        if (bucket == null)
+            bucket = buckets.computeIfAbsent(lastNameInitial, Bucket::new);
+        return bucket;
+    }
+
+    public Bucket getBucket(Record record) {
+        return getBucket(initialOf(record.getLastName()));
+    }
+
+    /**
+     * Open a point-in-time view of the store, to be used with try-with-resources
+     */
+    public Snapshot snapshot() {
+        snapshotLock.lock();
+        try {
+            long version = clock.get();
+            openSnapshots.merge(version, 1, Integer::sum);
+            return new Snapshot(version);
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    /**
+     * Lock-free lookup of the latest version in the primary-key index
+     */
+    public Record get(String recordID) {
+        int key = RecordIndex.keyOf(recordID);
+        if (key < 0)
+            return null;
+        return RecordIndex.matching(indexGet(key), recordID);
+    }
+
+    /**
+     * Latest records whose field has the given value, at most limit of them
+     */
+    public List<Record> find(SecondaryIndex.Indexed_Fields field, String value, int limit) {
+        List<Record> result = new ArrayList<>();
+        for (int key : secondaryIndex.lookup(field, value)) {
+            if (result.size() >= limit)
+                break;
+            Record record = indexGet(key);
+            // The record may have been edited or removed since its posting was read
+            if (record != null && SecondaryIndex.matches(record, field, value))
+                result.add(record);
+        }
+        return result;
+    }
+
+    private Record indexGet(int key) {
+        int segment = segmentOf(key);
+        RecordIndex index = indexSegments[segment];
+        StampedLock lock = indexLocks[segment];
+
+        long stamp = lock.tryOptimisticRead();
+        Record record = index.get(key);
+        if (!lock.validate(stamp)) {
+            // A writer of the same segment raced with us, fall back to a read lock
+            stamp = lock.readLock();
+            try {
+                record = index.get(key);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return record;
+    }
+
+    /**
+     * Add or replace a record in its bucket and in the primary-key index
+     * The record must not be modified once it is stored
+     * Return the previous record with the same recordID, or null if it is new
+     */
+    public Record put(Record record) {
+        int key = RecordIndex.keyOf(record.getRecordID());
+        Bucket bucket = getBucket(record);
+        synchronized (bucket) {
+            Record previous = indexPut(key, record);
+            if (previous != null)
+                secondaryIndex.remove(key, previous);
+            secondaryIndex.add(key, record);
+            install(bucket, key, record);
+            return previous;
+        }
+    }
+
+    /**
+     * Remove the record from its bucket and from the primary-key index
+     * Return false if the record was no longer stored
+     */
+    public boolean remove(Record record) {
+        int key = RecordIndex.keyOf(record.getRecordID());
+        Bucket bucket = getBucket(record);
+        synchronized (bucket) {
+            Version head = bucket.versions.get(key);
+            if (head == null || head.record != record)
+                return false;
+            indexRemove(key, record.getRecordID());
+            secondaryIndex.remove(key, record);
+            install(bucket, key, null);
+            return true;
+        }
+    }
+
+    /**
+     * Publish a new version, called with the bucket lock held.
+     * The version is inserted before it is stamped: a snapshot that could see the stamp
+     * is guaranteed to find the version in the bucket, and waits while it is pending.
+     */
+    private void install(Bucket bucket, int key, Record record) {
+        Version previous = bucket.versions.get(key);
+        Version version = new Version(record, previous);
+        bucket.versions.put(key, version);
+        version.stamp = clock.incrementAndGet();
+
+        if (previous == null)
+            return;
+        advanceHorizon();
+        long visibleHorizon = horizon;
+        // Keep every version newer than the horizon, plus the newest one at or before it
+        for (Version v = version; v != null; v = v.previous) {
+            if (v.stamp <= visibleHorizon) {
+                v.previous = null;
+                break;
+            }
+        }
+        if (record == null) {
+            if (version.stamp <= visibleHorizon)
+                bucket.versions.remove(key, version);
+            else
+                tombstones.add(new Tombstone(bucket, key, version));
+        }
+    }
+
+    /**
+     * Move the horizon up to the clock when no snapshot is open.
+     * Writers only try the lock, they never wait for a snapshot being opened or closed.
+     */
+    private void advanceHorizon() {
+        if (snapshotLock.tryLock()) {
+            try {
+                if (openSnapshots.isEmpty())
+                    horizon = clock.get();
+            } finally {
+                snapshotLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Drop removed records that no open snapshot can see anymore
+     */
+    private void vacuum() {
+        long visibleHorizon = horizon;
+        int pending = tombstones.size();
+        Tombstone tombstone;
+        while (pending-- > 0 && (tombstone = tombstones.poll()) != null) {
+            if (tombstone.version.stamp > visibleHorizon) {
+                tombstones.add(tombstone);
+                continue;
+            }
+            synchronized (tombstone.bucket) {
+                tombstone.bucket.versions.remove(tombstone.key, tombstone.version);
+            }
+        }
+    }
+
+    private static Record visible(Version head, long version) {
+        for (Version v = head; v != null; v = v.previous) {
+            if (v.committedStamp() <= version)
+                return v.record;
+        }
+        return null;
+    }
+
+    private Record indexPut(int key, Record record) {
+        int segment = segmentOf(key);
+        StampedLock lock = indexLocks[segment];
+        long stamp = lock.writeLock();
+        try {
+            return indexSegments[segment].put(record);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void indexRemove(int key, String recordID) {
+        int segment = segmentOf(key);
+        StampedLock lock = indexLocks[segment];
+        long stamp = lock.writeLock();
+        try {
+            indexSegments[segment].remove(recordID);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private static int segmentOf(int key) {
+        int h = key * 0x9E3779B9;
+        return (h >>> 27) & (INDEX_SEGMENTS - 1);
+    }
+}
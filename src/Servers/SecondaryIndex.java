@@ -0,0 +1,99 @@
+package Servers;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Secondary indexes from field values to the recordID numbers holding them.
+ *
+ * Values are compared case-insensitively. The indexes are maintained incrementally
+ * by the RecordStore on every put and remove, under the lock of the record's bucket,
+ * so a lookup only costs a hash probe and never scans the records.
+ */
+public class SecondaryIndex {
+    public enum Indexed_Fields {status, specialization, location, lastName}
+
+    private final Map<Indexed_Fields, ConcurrentHashMap<String, Set<Integer>>> postings = new EnumMap<>(Indexed_Fields.class);
+
+    public SecondaryIndex() {
+        for (Indexed_Fields field : Indexed_Fields.values())
+            postings.put(field, new ConcurrentHashMap<>());
+    }
+
+    /**
+     * Return the indexed field with the given name, or null if the field is not indexed
+     */
+    public static Indexed_Fields fieldOf(String fieldName) {
+        for (Indexed_Fields field : Indexed_Fields.values()) {
+            if (field.name().equals(fieldName))
+                return field;
+        }
+        return null;
+    }
+
+    /**
+     * Value of the field in the record, or null if this type of record does not have it
+     */
+    public static String valueOf(Record record, Indexed_Fields field) {
+        switch (field) {
+            case lastName:
+                return record.getLastName();
+            case status:
+                return record.getRecordType() == Record.Record_Type.STUDENT ? ((StudentRecord) record).getStatus() : null;
+            case specialization:
+                return record.getRecordType() == Record.Record_Type.TEACHER ? ((TeacherRecord) record).getSpecialization() : null;
+            case location:
+                return record.getRecordType() == Record.Record_Type.TEACHER ? ((TeacherRecord) record).getLocation() : null;
+            default:
+                return null;
+        }
+    }
+
+    public static boolean matches(Record record, Indexed_Fields field, String value) {
+        String recordValue = valueOf(record, field);
+        return recordValue != null && normalize(recordValue).equals(normalize(value));
+    }
+
+    public void add(int key, Record record) {
+        for (Indexed_Fields field : Indexed_Fields.values()) {
+            String value = valueOf(record, field);
+            if (value != null) {
+                postings.get(field).compute(normalize(value), (k, keys) -> {
+                    if (keys == null)
+                        keys = ConcurrentHashMap.newKeySet();
+                    keys.add(key);
+                    return keys;
+                });
+            }
+        }
+    }
+
+    public void remove(int key, Record record) {
+        for (Indexed_Fields field : Indexed_Fields.values()) {
+            String value = valueOf(record, field);
+            if (value != null) {
+                // Drop the posting set once it is empty, atomically with respect to concurrent adds
+                postings.get(field).computeIfPresent(normalize(value), (k, keys) -> {
+                    keys.remove(key);
+                    return keys.isEmpty() ? null : keys;
+                });
+            }
+        }
+    }
+
+    /**
+     * Weakly consistent set of the recordID numbers whose field has the given value
+     */
+    public Set<Integer> lookup(Indexed_Fields field, String value) {
+        Set<Integer> keys = postings.get(field).get(normalize(value));
+        return keys == null ? Collections.<Integer>emptySet() : keys;
+    }
+
+    private static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+}
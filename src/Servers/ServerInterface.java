@@ -16,15 +16,45 @@ public interface ServerInterface extends Remote {
     @WebMethod
     String createSRecord(String managerID, String firstName, String lastName, String coursesRegistered, String status) throws RemoteException, ServerNotActiveException;
     @WebMethod
+    String[] createTRecords(String managerID, String[] firstNames, String[] lastNames, String[] addresses, String[] phones, String[] specializations, String[] locations) throws RemoteException;
+    @WebMethod
+    String[] createSRecords(String managerID, String[] firstNames, String[] lastNames, String[] coursesRegistered, String[] statuses) throws RemoteException;
+    @WebMethod
     String getRecordCounts(String managerID) throws RemoteException;
     @WebMethod
+    String getExactRecordCounts(String managerID) throws RemoteException;
+    @WebMethod
     boolean editRecord(String managerID, String recordID, String fieldName, String newValue) throws RemoteException;
     @WebMethod
     boolean transferRecord(String managerID, String recordID, String remoteCenterServerName) throws RemoteException;
     @WebMethod
+    String[] transferRecords(String managerID, String[] recordIDs, String remoteCenterServerName) throws RemoteException;
+    @WebMethod
+    String[] transferMatchingRecords(String managerID, String fieldName, String value, String remoteCenterServerName) throws RemoteException;
+    @WebMethod
     String printRecords(String managerID, String recordID) throws RemoteException;
     @WebMethod
     String printAllRecords() throws RemoteException;
     @WebMethod
+    String getRebalanceStatus(String managerID) throws RemoteException;
+    @WebMethod
+    String printRecordsPage(String cursor, int pageSize) throws RemoteException;
+    @WebMethod
+    String queryRecords(String managerID, String fieldName, String value, int maxResults) throws RemoteException;
+    @WebMethod
     String getRecordType(String recordID) throws RemoteException;
+    @WebMethod
+    String getSessionToken(String managerID) throws RemoteException;
+    @WebMethod
+    String printRecordsInSession(String managerID, String recordID, String sessionToken) throws RemoteException;
+    @WebMethod
+    String printAllRecordsInSession(String sessionToken) throws RemoteException;
+    @WebMethod
+    String printRecordsPageInSession(String cursor, int pageSize, String sessionToken) throws RemoteException;
+    @WebMethod
+    String getRecordCountsInSession(String managerID, String sessionToken) throws RemoteException;
+    @WebMethod
+    String findRecord(String managerID, String recordID) throws RemoteException;
+    @WebMethod
+    String queryCluster(String managerID, String fieldName, String value, int maxResults) throws RemoteException;
 }
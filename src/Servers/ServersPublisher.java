@@ -3,25 +3,46 @@ package Servers;
 import Utils.Config;
 
 import javax.xml.ws.Endpoint;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Created by quocminhvu on 2017-05-26.
  */
 
 public class ServersPublisher {
+    /**
+     * Publish the centers and shards given as arguments, or every one of the cluster without arguments
+     * Each node of a larger cluster runs its own centers, a sharded center is published as its router
+     * Read replicas are published as centers that follow their primary
+     */
     public static void main(String args[]) {
         try {
-            CenterServer serverMtl = new CenterServer(Config.Server_ID.MTL);
-            Endpoint endpointMtl = Endpoint.publish("http://localhost:8888/mtl", serverMtl);
-            System.out.println("MTL Server published : " + endpointMtl.isPublished());
+            // Managers keep their connections open, answer on them without waiting for Nagle's algorithm
+            if (System.getProperty("sun.net.httpserver.nodelay") == null)
+                System.setProperty("sun.net.httpserver.nodelay", "true");
+            List<Config.Server_ID> serverIDs = new ArrayList<>();
+            for (String arg : args)
+                serverIDs.add(Config.Server_ID.valueOf(arg.toUpperCase()));
+            if (serverIDs.isEmpty()) {
+                for (Config.Server_ID node : Config.Server_ID.values()) {
+                    serverIDs.add(node);
+                    serverIDs.addAll(Arrays.asList(node.getReplicas()));
+                }
+                for (Config.Server_ID center : Config.Server_ID.centers()) {
+                    if (center.isSharded())
+                        serverIDs.add(center);
+                }
+            }
 
-            CenterServer serverLvl = new CenterServer(Config.Server_ID.LVL);
-            Endpoint endpointLvl = Endpoint.publish("http://localhost:8888/lvl", serverLvl);
-            System.out.println("LVL Server published : " + endpointLvl.isPublished());
-
-            CenterServer serverDdo = new CenterServer(Config.Server_ID.DDO);
-            Endpoint endpointDdo = Endpoint.publish("http://localhost:8888/ddo", serverDdo);
-            System.out.println("DDO Server published : " + endpointDdo.isPublished());
+            for (Config.Server_ID serverID : serverIDs) {
+                Object server = serverID.isSharded() ? new CenterRouter(serverID) : new CenterServer(serverID);
+                if (server instanceof CenterServer)
+                    Runtime.getRuntime().addShutdownHook(new Thread(((CenterServer) server)::shutdown));
+                Endpoint endpoint = Endpoint.publish(serverID.getWebServiceURL(), server);
+                System.out.println(serverID + " Server published : " + endpoint.isPublished());
+            }
         } catch (Exception e) {
             System.out.println("ERROR: " + e);
             e.printStackTrace(System.out);
@@ -0,0 +1,221 @@
+package Servers;
+
+import Utils.Config;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary snapshot of the records of one center, written and read through memory-mapped regions.
+ *
+ * Layout: a fixed header (magic, format version, LSN of the write-ahead log covered by the snapshot,
+ * next record ID, number of records, length and CRC32 of the data, number of transfer IDs) followed by
+ * the records, each as [length][RecordCodec bytes], then the IDs of the transfers applied, each as [length][UTF].
+ *
+ * A snapshot is written to a temporary file, synced, then atomically renamed over the previous one,
+ * so a crash while snapshotting always leaves a complete snapshot behind.
+ */
+public class SnapshotFile {
+    private static final int MAGIC = 0x44434D53; // DCMS
+    private static final int FORMAT_VERSION = 2;
+    private static final int HEADER_SIZE = 40;
+
+    /**
+     * What the snapshot knows besides its records
+     */
+    public static final class Header {
+        public final long lsn;
+        public final int nextRecordID;
+        public final int recordsCount;
+        public final List<String> appliedTransfers;
+
+        Header(long lsn, int nextRecordID, int recordsCount, List<String> appliedTransfers) {
+            this.lsn = lsn;
+            this.nextRecordID = nextRecordID;
+            this.recordsCount = recordsCount;
+            this.appliedTransfers = appliedTransfers;
+        }
+    }
+
+    public interface Loader {
+        void load(Record record);
+    }
+
+    private SnapshotFile() {}
+
+    /**
+     * Write the records of the store snapshot and the IDs of the transfers applied, covering the write-ahead log up to lsn
+     */
+    public static Header write(Path path, long lsn, int nextRecordID, RecordStore.Snapshot snapshot, Collection<String> transferIDs) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.createDirectories(path.getParent());
+        int recordsCount = 0;
+
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            DataOutputStream out = new DataOutputStream(bytes);
+            RegionWriter writer = new RegionWriter(channel);
+
+            for (RecordStore.Bucket bucket : snapshot.buckets()) {
+                for (Record record : snapshot.records(bucket)) {
+                    bytes.reset();
+                    RecordCodec.write(out, record);
+                    out.flush();
+                    writer.write(bytes.toByteArray());
+                    recordsCount++;
+                }
+            }
+            for (String transferID : transferIDs) {
+                bytes.reset();
+                out.writeUTF(transferID);
+                out.flush();
+                writer.write(bytes.toByteArray());
+            }
+            writer.force();
+
+            // The last region is only partly used
+            channel.truncate(HEADER_SIZE + writer.dataLength);
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            header.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(lsn).putInt(nextRecordID).putInt(recordsCount)
+                    .putLong(writer.dataLength).putInt((int) writer.crc.getValue()).putInt(transferIDs.size());
+            header.force();
+            channel.force(true);
+        }
+
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return new Header(lsn, nextRecordID, recordsCount, new ArrayList<>(transferIDs));
+    }
+
+    /**
+     * Verify the snapshot, then pass each of its records to the loader
+     * Nothing is loaded from a snapshot that does not verify
+     */
+    public static Header read(Path path, Loader loader) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE)
+                throw new IOException("Snapshot " + path + " is truncated");
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            // Snapshots of the first format have no transfer IDs
+            int magic = header.getInt();
+            int version = header.getInt();
+            if (magic != MAGIC || version < 1 || version > FORMAT_VERSION)
+                throw new IOException("Snapshot " + path + " has an unknown format");
+            long lsn = header.getLong();
+            int nextRecordID = header.getInt();
+            int recordsCount = header.getInt();
+            long dataLength = header.getLong();
+            int expectedCRC = header.getInt();
+            int transfersCount = version == 1 ? 0 : header.getInt();
+            if (channel.size() != HEADER_SIZE + dataLength)
+                throw new IOException("Snapshot " + path + " is truncated");
+
+            // First pass over the mapped data to verify it, the second one decodes the records
+            CRC32 crc = new CRC32();
+            int count = 0;
+            for (RegionReader reader = new RegionReader(channel, dataLength); reader.hasNext(); count++)
+                crc.update(reader.next());
+            if ((int) crc.getValue() != expectedCRC || count != recordsCount + transfersCount)
+                throw new IOException("Snapshot " + path + " is corrupted");
+
+            RegionReader reader = new RegionReader(channel, dataLength);
+            for (int i = 0; i < recordsCount; i++)
+                loader.load(RecordCodec.read(new DataInputStream(new ByteArrayInputStream(reader.next()))));
+            List<String> appliedTransfers = transfersCount == 0 ? Collections.emptyList() : new ArrayList<>(transfersCount);
+            for (int i = 0; i < transfersCount; i++)
+                appliedTransfers.add(new DataInputStream(new ByteArrayInputStream(reader.next())).readUTF());
+            return new Header(lsn, nextRecordID, recordsCount, appliedTransfers);
+        }
+    }
+
+    /**
+     * Sequential writer of the length-prefixed entries, mapping the file one region at a time
+     * Entries never span two regions
+     */
+    private static final class RegionWriter {
+        private final FileChannel channel;
+        private final CRC32 crc = new CRC32();
+        private MappedByteBuffer region;
+        private long regionEnd = HEADER_SIZE;
+        private long dataLength;
+
+        RegionWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void write(byte[] entry) throws IOException {
+            // Map the next region of the file once the current one is full
+            if (region == null || region.remaining() < Integer.BYTES + entry.length) {
+                long regionStart = region == null ? HEADER_SIZE : regionEnd - region.remaining();
+                if (region != null)
+                    region.force();
+                region = channel.map(FileChannel.MapMode.READ_WRITE, regionStart, Math.max(Config.SNAPSHOT_REGION_SIZE, Integer.BYTES + entry.length));
+                regionEnd = regionStart + region.capacity();
+            }
+            region.putInt(entry.length);
+            region.put(entry);
+            crc.update(entry, 0, entry.length);
+            dataLength += Integer.BYTES + entry.length;
+        }
+
+        void force() {
+            if (region != null)
+                region.force();
+        }
+    }
+
+    /**
+     * Sequential reader of the length-prefixed records, mapping the file one region at a time
+     */
+    private static final class RegionReader {
+        private final FileChannel channel;
+        private final long end;
+        private MappedByteBuffer region;
+        private long regionStart = HEADER_SIZE;
+
+        RegionReader(FileChannel channel, long dataLength) {
+            this.channel = channel;
+            this.end = HEADER_SIZE + dataLength;
+        }
+
+        boolean hasNext() {
+            return position() < end;
+        }
+
+        byte[] next() throws IOException {
+            ensure(Integer.BYTES);
+            int length = region.getInt();
+            if (length < 0 || position() + length > end)
+                throw new IOException("Snapshot record of invalid length " + length);
+            ensure(length);
+            byte[] record = new byte[length];
+            region.get(record);
+            return record;
+        }
+
+        private long position() {
+            return region == null ? regionStart : regionStart + region.position();
+        }
+
+        private void ensure(int length) throws IOException {
+            if (region != null && region.remaining() >= length)
+                return;
+            long position = position();
+            region = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(end - position, Math.max(Config.SNAPSHOT_REGION_SIZE, length)));
+            regionStart = position;
+        }
+    }
+}
@@ -1,11 +1,42 @@
 package Servers;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
 /**
  * Created by quocminhvu on 2017-05-19.
  */
 
 public class StudentRecord extends Record {
-    public enum Mutable_Fields {coursesRegistered, status, statusDate}
+    public enum Mutable_Fields {
+        coursesRegistered(StudentRecord::setCoursesRegistered),
+        status(StudentRecord::setStatus),
+        statusDate(StudentRecord::setStatusDate);
+
+        private static final Map<String, Mutable_Fields> BY_NAME = new HashMap<>();
+        static {
+            for (Mutable_Fields field : values())
+                BY_NAME.put(field.name(), field);
+        }
+
+        private final BiConsumer<StudentRecord, String> setter;
+
+        Mutable_Fields(BiConsumer<StudentRecord, String> setter) {
+            this.setter = setter;
+        }
+
+        public void set(StudentRecord record, String value) {
+            setter.accept(record, value);
+        }
+
+        /**
+         * Return the field with the given name, or null if it cannot be modified
+         */
+        public static Mutable_Fields fromName(String fieldName) {
+            return fieldName == null ? null : BY_NAME.get(fieldName);
+        }
+    }
     private String coursesRegistered;
     private String status;
     private String statusDate;
@@ -40,4 +71,9 @@ public class StudentRecord extends Record {
     public void setStatusDate(String statusDate) {
         this.statusDate = statusDate;
     }
+
+    @Override
+    public StudentRecord copy() {
+        return new StudentRecord(getRecordID(), getFirstName(), getLastName(), coursesRegistered, status, statusDate);
+    }
 }
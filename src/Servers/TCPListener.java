@@ -0,0 +1,130 @@
+package Servers;
+
+import Utils.Config;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * TCP listener of the inter-server requests too large for a datagram.
+ *
+ * Other centers keep a few connections open and pipeline framed requests over them.
+ * Each connection has a reader thread that hands every request to a bounded pool of workers,
+ * which write their replies back on the connection in whatever order they finish.
+ * When every worker is busy and the queue is full, the reader runs the request itself,
+ * which stops it reading and pushes back on the sender through TCP flow control.
+ */
+public class TCPListener {
+    private static final Logger LOGGER = Logger.getLogger(CenterServer.class.getName());
+
+    private final int port;
+    private final PeerRequestHandler handler;
+    private final Set<SocketChannel> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger connectionsCount = new AtomicInteger();
+    private ServerSocketChannel serverChannel;
+    private ThreadPoolExecutor workers;
+
+    public TCPListener(int port, PeerRequestHandler handler) {
+        this.port = port;
+        this.handler = handler;
+    }
+
+    public synchronized void start() throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        serverChannel.bind(new InetSocketAddress(port));
+
+        workers = new ThreadPoolExecutor(Config.TCP_WORKER_THREADS, Config.TCP_WORKER_THREADS, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Config.TCP_WORKER_QUEUE_SIZE),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "TCP-worker-" + port);
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+
+        Thread acceptor = new Thread(this::accept, "TCP-acceptor-" + port);
+        acceptor.setDaemon(true);
+        acceptor.start();
+        LOGGER.info(String.format(Config.LOG_TCP_SERVER_START, port));
+    }
+
+    public synchronized void stop() {
+        try {
+            if (serverChannel != null)
+                serverChannel.close();
+        } catch (IOException e) {
+            LOGGER.severe(e.getMessage());
+        }
+        for (SocketChannel connection : connections)
+            close(connection);
+        if (workers != null)
+            workers.shutdown();
+        LOGGER.info(String.format(Config.LOG_TCP_SERVER_STOP, port));
+    }
+
+    private void accept() {
+        while (serverChannel.isOpen()) {
+            try {
+                SocketChannel connection = serverChannel.accept();
+                connection.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                connections.add(connection);
+                Thread reader = new Thread(() -> read(connection), "TCP-connection-" + port + "-" + connectionsCount.incrementAndGet());
+                reader.setDaemon(true);
+                reader.start();
+            } catch (ClosedChannelException e) {
+                break;
+            } catch (IOException e) {
+                LOGGER.severe(e.getMessage());
+            }
+        }
+    }
+
+    private void read(SocketChannel connection) {
+        try {
+            ByteBuffer request;
+            // Every buffer has room for a small reply, which is written in place of the request
+            while ((request = PeerConnection.readFrame(connection, Config.UDP_BUFFER_SIZE)) != null) {
+                ByteBuffer buffer = request;
+                workers.execute(() -> serve(connection, buffer));
+            }
+        } catch (IOException e) {
+            if (connection.isOpen())
+                LOGGER.fine(e.getMessage());
+        } finally {
+            close(connection);
+        }
+    }
+
+    private void serve(SocketChannel connection, ByteBuffer buffer) {
+        try {
+            ByteBuffer reply = handler.handle(buffer);
+            if (reply.hasRemaining())
+                PeerConnection.writeFrame(connection, reply);
+        } catch (Exception e) {
+            LOGGER.severe(e.getMessage());
+            close(connection);
+        }
+    }
+
+    private void close(SocketChannel connection) {
+        connections.remove(connection);
+        try {
+            connection.close();
+        } catch (IOException e) {
+            LOGGER.fine(e.getMessage());
+        }
+    }
+}
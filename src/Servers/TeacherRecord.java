@@ -1,11 +1,42 @@
 package Servers;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
 /**
  * Created by quocminhvu on 2017-05-19.
  */
 
 public class TeacherRecord extends Record {
-    public enum Mutable_Fields {address, phone, location}
+    public enum Mutable_Fields {
+        address(TeacherRecord::setAddress),
+        phone(TeacherRecord::setPhone),
+        location(TeacherRecord::setLocation);
+
+        private static final Map<String, Mutable_Fields> BY_NAME = new HashMap<>();
+        static {
+            for (Mutable_Fields field : values())
+                BY_NAME.put(field.name(), field);
+        }
+
+        private final BiConsumer<TeacherRecord, String> setter;
+
+        Mutable_Fields(BiConsumer<TeacherRecord, String> setter) {
+            this.setter = setter;
+        }
+
+        public void set(TeacherRecord record, String value) {
+            setter.accept(record, value);
+        }
+
+        /**
+         * Return the field with the given name, or null if it cannot be modified
+         */
+        public static Mutable_Fields fromName(String fieldName) {
+            return fieldName == null ? null : BY_NAME.get(fieldName);
+        }
+    }
     private String address;
     private String phone;
     private String specialization;
@@ -50,4 +81,9 @@ public class TeacherRecord extends Record {
     public void setLocation(String location) {
         this.location = location;
     }
+
+    @Override
+    public TeacherRecord copy() {
+        return new TeacherRecord(getRecordID(), getFirstName(), getLastName(), address, phone, specialization, location);
+    }
 }
@@ -0,0 +1,293 @@
+package Servers;
+
+import Utils.Config;
+import Utils.Config.Server_ID;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Durable outbox of the records being transferred to other centers.
+ *
+ * A transfer goes through three steps:
+ * 1. the record is marked in flight under its bucket lock, which freezes it: it can no longer be edited or transferred again
+ * 2. the transfer is logged here (BEGIN, with the full record) and the record is shipped under its transfer ID
+ * 3. once the remote center has confirmed it, the record is deleted locally and the transfer is logged as done (END)
+ *
+ * The remote center logs the transfer ID with the record and keeps the latest IDs in its snapshots,
+ * and never overwrites a record it already holds, so a transfer can be shipped again safely until it is
+ * confirmed, including after a restart of either center: every BEGIN without its END is pending again.
+ * A record is thus never lost, and it ends up on both centers only for the time between
+ * the confirmation and the local delete.
+ *
+ * A transfer still unconfirmed after Config.TRANSFER_EXPIRY_MILLIS, e.g. because the remote center is down,
+ * is aborted: logged as such (ABORT) and its record unfrozen, so that it can be edited and transferred again.
+ * If the remote center had stored the record before failing to confirm it, both centers then hold it.
+ *
+ * Entries are framed as [length][crc32][body] like the write-ahead log, a torn tail is dropped when loading.
+ */
+public class TransferOutbox implements AutoCloseable {
+    private enum Operation {BEGIN, END, ABORT}
+
+    private static final int FRAME_HEADER = 8;
+
+    /**
+     * A transfer of one record, pending until it is confirmed
+     */
+    public static final class Transfer {
+        private final String transferID;
+        private final Record record;
+        private final Server_ID remoteServerID;
+        private final AtomicBoolean delivering = new AtomicBoolean();
+        // A transfer left over from before a restart expires counting from the restart
+        private final long beganMillis = System.currentTimeMillis();
+
+        Transfer(String transferID, Record record, Server_ID remoteServerID) {
+            this.transferID = transferID;
+            this.record = record;
+            this.remoteServerID = remoteServerID;
+        }
+
+        public String getTransferID() {
+            return transferID;
+        }
+
+        public Record getRecord() {
+            return record;
+        }
+
+        public Server_ID getRemoteServerID() {
+            return remoteServerID;
+        }
+
+        public boolean isExpired(long nowMillis) {
+            return nowMillis - beganMillis >= Config.TRANSFER_EXPIRY_MILLIS;
+        }
+
+        /**
+         * Claim the transfer for one delivery attempt, so that a retry never races with the first attempt
+         */
+        public boolean claim() {
+            return delivering.compareAndSet(false, true);
+        }
+
+        public void release() {
+            delivering.set(false);
+        }
+    }
+
+    private final Path path;
+    private final String transferIDPrefix;
+    private final AtomicLong nextTransferID = new AtomicLong();
+    private final Map<String, Record> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Transfer> pending = new LinkedHashMap<>();
+    private FileChannel channel;
+
+    /**
+     * Open the outbox of the center, every transfer that was not done before it stopped is pending again
+     */
+    public TransferOutbox(Path directory, Server_ID serverID) throws IOException {
+        Files.createDirectories(directory);
+        this.path = directory.resolve(String.format(Config.OUTBOX_FILENAME, serverID));
+        // Transfer IDs must never repeat across restarts of the center
+        this.transferIDPrefix = serverID.name() + "-" + System.currentTimeMillis() + "-";
+
+        long validLength = Files.exists(path) ? load() : 0;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.truncate(validLength);
+        channel.position(validLength);
+        for (Transfer transfer : pending.values())
+            inFlight.put(transfer.record.getRecordID(), transfer.record);
+    }
+
+    /**
+     * Mark the record in flight, must be called under the lock of its bucket
+     * Return false if it already is
+     */
+    public boolean mark(Record record) {
+        return inFlight.putIfAbsent(record.getRecordID(), record) == null;
+    }
+
+    /**
+     * Must be called under the lock of the record's bucket, like every check before changing a record
+     */
+    public boolean isInFlight(String recordID) {
+        return inFlight.containsKey(recordID);
+    }
+
+    /**
+     * Log the transfers of the marked records with a single sync, the transfers are returned claimed
+     * If they cannot be logged, the records are unmarked and the exception is thrown
+     */
+    public synchronized List<Transfer> begin(List<Record> records, Server_ID remoteServerID) throws IOException {
+        List<Transfer> transfers = new ArrayList<>(records.size());
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        for (Record record : records) {
+            Transfer transfer = new Transfer(transferIDPrefix + nextTransferID.incrementAndGet(), record, remoteServerID);
+            transfer.claim();
+            transfers.add(transfer);
+            frames.write(encode(Operation.BEGIN, transfer));
+        }
+        try {
+            write(frames.toByteArray());
+        } catch (IOException e) {
+            for (Record record : records)
+                inFlight.remove(record.getRecordID());
+            throw e;
+        }
+        for (Transfer transfer : transfers)
+            pending.put(transfer.transferID, transfer);
+        return transfers;
+    }
+
+    /**
+     * Log the transfers as done, their records must already be deleted durably
+     */
+    public synchronized void end(Collection<Transfer> transfers) throws IOException {
+        finish(Operation.END, transfers);
+    }
+
+    /**
+     * Log the claimed transfers as aborted and unfreeze their records, which stay on this center
+     */
+    public synchronized void abort(Collection<Transfer> transfers) throws IOException {
+        finish(Operation.ABORT, transfers);
+    }
+
+    private void finish(Operation operation, Collection<Transfer> transfers) throws IOException {
+        if (transfers.isEmpty())
+            return;
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        for (Transfer transfer : transfers)
+            frames.write(encode(operation, transfer));
+        write(frames.toByteArray());
+        for (Transfer transfer : transfers) {
+            pending.remove(transfer.transferID);
+            inFlight.remove(transfer.record.getRecordID());
+        }
+        // Nothing pending is the common case, which makes the outbox empty again for free
+        if (pending.isEmpty()) {
+            channel.truncate(0);
+            channel.position(0);
+        } else if (channel.size() > Config.OUTBOX_COMPACT_SIZE) {
+            compact();
+        }
+    }
+
+    public synchronized List<Transfer> getPending() {
+        return new ArrayList<>(pending.values());
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private void write(byte[] frames) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(frames);
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        channel.force(false);
+    }
+
+    /**
+     * Rewrite the outbox with only the pending transfers, then atomically replace it
+     */
+    private void compact() throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel compacted = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteArrayOutputStream frames = new ByteArrayOutputStream();
+            for (Transfer transfer : pending.values())
+                frames.write(encode(Operation.BEGIN, transfer));
+            ByteBuffer buffer = ByteBuffer.wrap(frames.toByteArray());
+            while (buffer.hasRemaining())
+                compacted.write(buffer);
+            compacted.force(true);
+        }
+        channel.close();
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        channel = FileChannel.open(path, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+    }
+
+    /**
+     * Read the valid prefix of the outbox into the pending transfers
+     * Return its length in bytes
+     */
+    private long load() throws IOException {
+        long validLength = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            while (true) {
+                byte[] body;
+                int expectedCRC;
+                try {
+                    int length = in.readInt();
+                    expectedCRC = in.readInt();
+                    if (length <= 0 || length > Config.WAL_MAX_ENTRY_SIZE)
+                        break;
+                    body = new byte[length];
+                    in.readFully(body);
+                } catch (EOFException e) {
+                    break;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(body, 0, body.length);
+                if ((int) crc.getValue() != expectedCRC)
+                    break;
+
+                DataInputStream entry = new DataInputStream(new ByteArrayInputStream(body));
+                Operation operation = Operation.values()[entry.readByte()];
+                String transferID = entry.readUTF();
+                if (operation == Operation.BEGIN) {
+                    Server_ID remoteServerID = Server_ID.valueOf(entry.readUTF());
+                    pending.put(transferID, new Transfer(transferID, RecordCodec.read(entry), remoteServerID));
+                } else {
+                    // END or ABORT
+                    pending.remove(transferID);
+                }
+                validLength += FRAME_HEADER + body.length;
+            }
+        }
+        return validLength;
+    }
+
+    private static byte[] encode(Operation operation, Transfer transfer) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        // Room for the frame header, filled in once the body is known
+        out.writeLong(0);
+        out.writeByte(operation.ordinal());
+        out.writeUTF(transfer.transferID);
+        if (operation == Operation.BEGIN) {
+            out.writeUTF(transfer.remoteServerID.name());
+            RecordCodec.write(out, transfer.record);
+        }
+        out.flush();
+
+        byte[] frame = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(frame, FRAME_HEADER, frame.length - FRAME_HEADER);
+        ByteBuffer.wrap(frame).putInt(frame.length - FRAME_HEADER).putInt((int) crc.getValue());
+        return frame;
+    }
+}
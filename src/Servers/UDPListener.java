@@ -0,0 +1,158 @@
+package Servers;
+
+import Utils.Config;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * UDP listener of the inter-server requests.
+ *
+ * One or more receiver threads read datagrams from their DatagramChannel into pooled direct buffers
+ * and hand them to a bounded pool of workers, which reply on the channel the request came from.
+ * The handler decodes the request from the buffer and encodes its reply into the same buffer.
+ * When every worker is busy and the queue is full, the receiver runs the request itself:
+ * it stops reading until it is done, so a burst of requests queues up in the socket
+ * instead of spawning threads.
+ *
+ * With more than one receiver, each one binds its own channel to the port with SO_REUSEPORT
+ * and the kernel spreads the datagrams across them. Platforms without SO_REUSEPORT use a single receiver.
+ */
+public class UDPListener {
+    private static final Logger LOGGER = Logger.getLogger(CenterServer.class.getName());
+
+    private final int port;
+    private final int receivers;
+    private final PeerRequestHandler handler;
+    private final BlockingQueue<ByteBuffer> bufferPool;
+    private final List<DatagramChannel> channels = new ArrayList<>();
+    private ThreadPoolExecutor workers;
+
+    public UDPListener(int port, int receivers, PeerRequestHandler handler) {
+        this.port = port;
+        this.receivers = Math.max(1, receivers);
+        this.handler = handler;
+        // Enough buffers for every request a receiver, a worker or the queue can hold at once
+        int poolSize = this.receivers + Config.UDP_WORKER_THREADS + Config.UDP_WORKER_QUEUE_SIZE;
+        this.bufferPool = new ArrayBlockingQueue<>(poolSize);
+        for (int i = 0; i < poolSize; i++)
+            bufferPool.add(ByteBuffer.allocateDirect(Config.UDP_BUFFER_SIZE));
+    }
+
+    public synchronized void start() throws IOException {
+        SocketOption<Boolean> reusePort = receivers > 1 ? reusePortOption() : null;
+        int channelCount = reusePort == null ? 1 : receivers;
+        if (receivers > 1 && reusePort == null)
+            LOGGER.info(String.format(Config.LOG_UDP_REUSE_PORT_UNSUPPORTED, port));
+
+        for (int i = 0; i < channelCount; i++) {
+            DatagramChannel channel = DatagramChannel.open();
+            if (reusePort != null)
+                channel.setOption(reusePort, true);
+            channel.setOption(StandardSocketOptions.SO_RCVBUF, Config.UDP_RECEIVE_BUFFER_SIZE);
+            channel.bind(new InetSocketAddress(port));
+            channels.add(channel);
+        }
+
+        workers = new ThreadPoolExecutor(Config.UDP_WORKER_THREADS, Config.UDP_WORKER_THREADS, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Config.UDP_WORKER_QUEUE_SIZE),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "UDP-worker-" + port);
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+
+        for (int i = 0; i < channels.size(); i++) {
+            DatagramChannel channel = channels.get(i);
+            Thread receiver = new Thread(() -> receive(channel), "UDP-receiver-" + port + "-" + (i + 1));
+            receiver.setDaemon(true);
+            receiver.start();
+        }
+        LOGGER.info(String.format(Config.LOG_UDP_SERVER_START, port));
+    }
+
+    public synchronized void stop() {
+        for (DatagramChannel channel : channels) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LOGGER.severe(e.getMessage());
+            }
+        }
+        channels.clear();
+        if (workers != null)
+            workers.shutdown();
+        LOGGER.info(String.format(Config.LOG_UDP_SERVER_STOP, port));
+    }
+
+    private void receive(DatagramChannel channel) {
+        while (channel.isOpen()) {
+            ByteBuffer buffer = null;
+            try {
+                buffer = bufferPool.take();
+                SocketAddress sender = channel.receive(buffer);
+                buffer.flip();
+                ByteBuffer request = buffer;
+                buffer = null;
+                workers.execute(() -> serve(channel, sender, request));
+            } catch (ClosedChannelException e) {
+                break;
+            } catch (Exception e) {
+                LOGGER.severe(e.getMessage());
+            } finally {
+                if (buffer != null)
+                    release(buffer);
+            }
+        }
+    }
+
+    private void serve(DatagramChannel channel, SocketAddress sender, ByteBuffer buffer) {
+        try {
+            ByteBuffer reply = handler.handle(buffer);
+            // The peer reads its replies into a buffer of the same size, a longer datagram would arrive truncated
+            if (reply.remaining() > Config.UDP_BUFFER_SIZE)
+                LOGGER.severe(String.format(Config.LOG_UDP_REPLY_DROPPED, port, reply.remaining(), Config.UDP_BUFFER_SIZE));
+            else if (reply.hasRemaining())
+                channel.send(reply, sender);
+        } catch (Exception e) {
+            LOGGER.severe(e.getMessage());
+        } finally {
+            release(buffer);
+        }
+    }
+
+    private void release(ByteBuffer buffer) {
+        buffer.clear();
+        bufferPool.offer(buffer);
+    }
+
+    /**
+     * SO_REUSEPORT is only a standard option from Java 9 on, look it up by name so that older runtimes fall back
+     */
+    @SuppressWarnings("unchecked")
+    private static SocketOption<Boolean> reusePortOption() {
+        try (DatagramChannel probe = DatagramChannel.open()) {
+            for (SocketOption<?> option : probe.supportedOptions()) {
+                if (option.name().equals("SO_REUSEPORT") && option.type() == Boolean.class)
+                    return (SocketOption<Boolean>) option;
+            }
+        } catch (IOException e) {
+            LOGGER.severe(e.getMessage());
+        }
+        return null;
+    }
+}
@@ -0,0 +1,458 @@
+package Servers;
+
+import Utils.Config;
+import Utils.Config.Durability_Level;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead log of one center.
+ *
+ * Every change of the record store is logged as the full image of the record (PUT)
+ * or as the removal of a recordID (DELETE). Entries are framed as [length][crc32][body],
+ * so a torn write at the tail is detected and dropped on replay.
+ *
+ * Appending only assigns the next log sequence number and queues the encoded entry,
+ * so it is cheap enough to be done under the bucket lock and keeps the log in the order
+ * of the changes. A single flusher thread writes everything queued with one write
+ * and one fsync (group commit), and callers wait for their LSN after releasing the lock.
+ *
+ * The log is split into segments, each named after the LSN preceding its first entry.
+ * Once a snapshot of the store covers a whole segment, the segment can be deleted.
+ *
+ * The latest entries are also kept in memory, read replicas pull them to follow the changes of the center.
+ */
+public class WriteAheadLog implements AutoCloseable {
+    /**
+     * RECEIVE is the put of a record transferred from another center, logged with the ID of its transfer
+     */
+    public enum Operation {PUT, DELETE, RECEIVE}
+
+    /**
+     * A decoded log entry, record is null for a DELETE and transferID is null unless it is a RECEIVE
+     */
+    public static final class Entry {
+        public final Operation operation;
+        public final String recordID;
+        public final Record record;
+        public final String transferID;
+
+        Entry(Operation operation, String recordID, Record record) {
+            this(operation, recordID, record, null);
+        }
+
+        Entry(Operation operation, String recordID, Record record, String transferID) {
+            this.operation = operation;
+            this.recordID = recordID;
+            this.record = record;
+            this.transferID = transferID;
+        }
+    }
+
+    public interface Replayer {
+        void apply(Entry entry);
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(CenterServer.class.getName());
+    private static final int FRAME_HEADER = 8;
+
+    private final Path directory;
+    private final String name;
+    private final Pattern segmentPattern;
+    private final Durability_Level durabilityLevel;
+    private FileChannel channel;
+    private Path path;
+    private long segmentBase;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition hasPending = lock.newCondition();
+    private final Condition hasFlushed = lock.newCondition();
+    private List<byte[]> pending = new ArrayList<>();
+    private long appendedLSN;
+    private long writtenLSN;
+    private long syncedLSN;
+    private boolean failed;
+    private boolean closed;
+    private boolean rotationRequested;
+    private long rotatedBase = -1;
+    private final Thread flusher;
+    /**
+     * Latest entries, for the replicas, entry lsn is at lsn % backlog.length once appended after backlogBase
+     */
+    private final Entry[] backlog = new Entry[Config.REPLICATION_BACKLOG_SIZE];
+    private final long backlogBase;
+
+    /**
+     * Replay the entries of the log that come after afterLSN, then open it for appending after the last valid one
+     * Entries are numbered from 1 in the order they were appended
+     */
+    public WriteAheadLog(Path directory, String name, Durability_Level durabilityLevel, long afterLSN, Replayer replayer) throws IOException {
+        this.directory = directory;
+        this.name = name;
+        this.segmentPattern = Pattern.compile(Pattern.quote(String.format(Config.WAL_FILENAME, name, 0L)).replace(String.format("%020d", 0L), "\\E(\\d{20})\\Q"));
+        this.durabilityLevel = durabilityLevel;
+        Files.createDirectories(directory);
+
+        TreeMap<Long, Path> segments = segments();
+        Path lastSegment = null;
+        long lastBase = 0;
+        long lastLSN = 0;
+        long validLength = 0;
+        for (Map.Entry<Long, Path> segment : segments.entrySet()) {
+            long[] validPrefix = scan(segment.getValue(), segment.getKey(), afterLSN, replayer);
+            if (!segment.getKey().equals(segments.lastKey()) && validPrefix[0] < Files.size(segment.getValue()))
+                LOGGER.severe(String.format(Config.LOG_WAL_FAILED, segment.getValue(), "corrupted entry at offset " + validPrefix[0]));
+            lastSegment = segment.getValue();
+            lastBase = segment.getKey();
+            validLength = validPrefix[0];
+            lastLSN = validPrefix[1];
+        }
+
+        if (lastSegment != null && lastLSN >= afterLSN) {
+            // Drop a partially written tail left by a crash, new entries must follow the last valid one
+            this.path = lastSegment;
+            this.segmentBase = lastBase;
+            this.channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.READ);
+            if (channel.size() > validLength)
+                channel.truncate(validLength);
+            channel.position(validLength);
+        } else {
+            // No log yet, or nothing in it is newer than the snapshot: continue numbering after the snapshot
+            lastLSN = afterLSN;
+            openSegment(afterLSN);
+        }
+        this.appendedLSN = this.writtenLSN = this.syncedLSN = lastLSN;
+        this.backlogBase = lastLSN;
+
+        this.flusher = new Thread(this::flushLoop, "WAL-" + name);
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    public long logPut(Record record) {
+        return append(encode(Operation.PUT, record.getRecordID(), record, null), new Entry(Operation.PUT, record.getRecordID(), record));
+    }
+
+    public long logReceive(String transferID, Record record) {
+        return append(encode(Operation.RECEIVE, record.getRecordID(), record, transferID),
+                new Entry(Operation.RECEIVE, record.getRecordID(), record, transferID));
+    }
+
+    public long logDelete(String recordID) {
+        return append(encode(Operation.DELETE, recordID, null, null), new Entry(Operation.DELETE, recordID, null));
+    }
+
+    /**
+     * Block until the entry with the given LSN is as durable as the configured level requires
+     * Return false if the log could not be written
+     */
+    public boolean awaitDurable(long lsn) {
+        if (durabilityLevel == Durability_Level.ASYNC)
+            return !failed;
+        lock.lock();
+        try {
+            while (!failed && (durabilityLevel == Durability_Level.SYNCED ? syncedLSN : writtenLSN) < lsn)
+                hasFlushed.awaitUninterruptibly();
+            return !failed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * LSN of the last entry appended
+     */
+    public long getAppendedLSN() {
+        lock.lock();
+        try {
+            return appendedLSN;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Durability_Level getDurabilityLevel() {
+        return durabilityLevel;
+    }
+
+    /**
+     * Sync the current segment and start a new one
+     * Return the LSN of the last entry before the new segment
+     */
+    public long rotate() throws IOException {
+        lock.lock();
+        try {
+            rotationRequested = true;
+            rotatedBase = -1;
+            hasPending.signal();
+            while (rotatedBase < 0 && !failed)
+                hasFlushed.awaitUninterruptibly();
+            if (failed)
+                throw new IOException(String.format(Config.LOG_WAL_FAILED, name, "cannot rotate"));
+            return rotatedBase;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Delete the segments whose entries all come before the given segment base
+     * Only to be called once those entries are covered by a durable snapshot
+     */
+    public void deleteSegmentsBefore(long base) throws IOException {
+        for (Path segment : segments().headMap(base, false).values())
+            Files.deleteIfExists(segment);
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closed = true;
+            hasPending.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    /**
+     * Durable entries after afterLSN, at most max of them, so that the replicas follow the log
+     * Return null if some of them are no longer kept in memory, a replica then copies the records again
+     */
+    public List<Entry> entriesAfter(long afterLSN, int max) {
+        lock.lock();
+        try {
+            if (afterLSN < Math.max(backlogBase, appendedLSN - backlog.length) || afterLSN > appendedLSN)
+                return null;
+            long durableLSN = durabilityLevel == Durability_Level.SYNCED ? syncedLSN : writtenLSN;
+            List<Entry> entries = new ArrayList<>();
+            for (long lsn = afterLSN + 1; lsn <= durableLSN && entries.size() < max; lsn++)
+                entries.add(backlog[(int) (lsn % backlog.length)]);
+            return entries;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Return the LSN of the entry, or -1 if the log has failed, nothing is appended to it anymore
+     */
+    private long append(byte[] frame, Entry entry) {
+        lock.lock();
+        try {
+            // The flusher has stopped, the entry would never be written
+            if (failed)
+                return -1;
+            pending.add(frame);
+            hasPending.signal();
+            long lsn = ++appendedLSN;
+            backlog[(int) (lsn % backlog.length)] = entry;
+            return lsn;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flushLoop() {
+        long lastSync = System.nanoTime();
+        while (true) {
+            List<byte[]> batch;
+            long batchLSN;
+            boolean rotate;
+            lock.lock();
+            try {
+                while (pending.isEmpty() && !closed && !rotationRequested) {
+                    // In ASYNC mode the last writes still have to reach the disk eventually
+                    if (syncedLSN < writtenLSN) {
+                        if (hasPending.awaitNanos(TimeUnit.MILLISECONDS.toNanos(Config.WAL_SYNC_INTERVAL_MILLIS)) <= 0)
+                            break;
+                    } else {
+                        hasPending.awaitUninterruptibly();
+                    }
+                }
+                if (closed && pending.isEmpty() && syncedLSN == writtenLSN)
+                    return;
+                batch = pending;
+                batchLSN = appendedLSN;
+                rotate = rotationRequested;
+                rotationRequested = false;
+                pending = new ArrayList<>();
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                /**
+                 * Write the whole batch, then make it durable with a single fsync
+                 * Writers arriving meanwhile queue up for the next round and share its fsync
+                 */
+                ByteBuffer[] buffers = new ByteBuffer[batch.size()];
+                for (int i = 0; i < buffers.length; i++)
+                    buffers[i] = ByteBuffer.wrap(batch.get(i));
+                long remaining = 0;
+                for (ByteBuffer buffer : buffers)
+                    remaining += buffer.remaining();
+                while (remaining > 0)
+                    remaining -= channel.write(buffers);
+
+                boolean sync = durabilityLevel != Durability_Level.ASYNC
+                        || System.nanoTime() - lastSync >= TimeUnit.MILLISECONDS.toNanos(Config.WAL_SYNC_INTERVAL_MILLIS)
+                        || batch.isEmpty() || rotate;
+                if (sync) {
+                    channel.force(false);
+                    lastSync = System.nanoTime();
+                }
+                // Every entry up to batchLSN is in the current segment, the next ones go to a new segment
+                if (rotate && batchLSN > segmentBase) {
+                    channel.close();
+                    openSegment(batchLSN);
+                }
+
+                lock.lock();
+                try {
+                    writtenLSN = batchLSN;
+                    if (sync)
+                        syncedLSN = batchLSN;
+                    if (rotate)
+                        rotatedBase = segmentBase;
+                    hasFlushed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            } catch (IOException e) {
+                LOGGER.severe(String.format(Config.LOG_WAL_FAILED, path, e.getMessage()));
+                lock.lock();
+                try {
+                    failed = true;
+                    hasFlushed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            }
+        }
+    }
+
+    private void openSegment(long base) throws IOException {
+        path = directory.resolve(String.format(Config.WAL_FILENAME, name, base));
+        segmentBase = base;
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Segments of this log, keyed on the LSN preceding their first entry
+     */
+    private TreeMap<Long, Path> segments() throws IOException {
+        TreeMap<Long, Path> segments = new TreeMap<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                Matcher matcher = segmentPattern.matcher(file.getFileName().toString());
+                if (matcher.matches())
+                    segments.put(Long.parseLong(matcher.group(1)), file);
+            });
+        }
+        return segments;
+    }
+
+    private static byte[] encode(Operation operation, String recordID, Record record, String transferID) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            DataOutputStream out = new DataOutputStream(bytes);
+            // Room for the frame header, filled in once the body is known
+            out.writeLong(0);
+            out.writeByte(operation.ordinal());
+            if (operation == Operation.RECEIVE)
+                out.writeUTF(transferID);
+            if (operation == Operation.DELETE)
+                out.writeUTF(recordID);
+            else
+                RecordCodec.write(out, record);
+            out.flush();
+
+            byte[] frame = bytes.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(frame, FRAME_HEADER, frame.length - FRAME_HEADER);
+            ByteBuffer.wrap(frame).putInt(frame.length - FRAME_HEADER).putInt((int) crc.getValue());
+            return frame;
+        } catch (IOException e) {
+            // Writing to memory cannot fail
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Read the valid prefix of a segment, passing each entry after afterLSN to the replayer
+     * Return {length of the valid prefix in bytes, LSN of its last entry}
+     */
+    private static long[] scan(Path path, long base, long afterLSN, Replayer replayer) throws IOException {
+        long validLength = 0;
+        long lsn = base;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            while (true) {
+                byte[] body;
+                int expectedCRC;
+                try {
+                    int length = in.readInt();
+                    expectedCRC = in.readInt();
+                    if (length <= 0 || length > Config.WAL_MAX_ENTRY_SIZE)
+                        break;
+                    body = new byte[length];
+                    in.readFully(body);
+                } catch (EOFException e) {
+                    break;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(body, 0, body.length);
+                if ((int) crc.getValue() != expectedCRC)
+                    break;
+
+                lsn++;
+                if (lsn > afterLSN)
+                    replayer.apply(decode(body));
+                validLength += FRAME_HEADER + body.length;
+            }
+        }
+        return new long[]{validLength, lsn};
+    }
+
+    private static Entry decode(byte[] body) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        Operation operation = Operation.values()[in.readByte()];
+        if (operation == Operation.DELETE)
+            return new Entry(operation, in.readUTF(), null);
+        String transferID = operation == Operation.RECEIVE ? in.readUTF() : null;
+        Record record = RecordCodec.read(in);
+        return new Entry(operation, record.getRecordID(), record, transferID);
+    }
+}
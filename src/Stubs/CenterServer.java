@@ -24,4 +24,19 @@ public interface CenterServer extends java.rmi.Remote {
     public java.lang.String getRecordType(java.lang.String arg0) throws java.rmi.RemoteException;
     public java.lang.String printAllRecords() throws java.rmi.RemoteException;
     public java.lang.String printRecords(java.lang.String arg0, java.lang.String arg1) throws java.rmi.RemoteException;
+    public java.lang.String printRecordsPage(java.lang.String arg0, int arg1) throws java.rmi.RemoteException;
+    public java.lang.String queryRecords(java.lang.String arg0, java.lang.String arg1, java.lang.String arg2, int arg3) throws java.rmi.RemoteException;
+    public java.lang.String[] createTRecords(java.lang.String arg0, java.lang.String[] arg1, java.lang.String[] arg2, java.lang.String[] arg3, java.lang.String[] arg4, java.lang.String[] arg5, java.lang.String[] arg6) throws java.rmi.RemoteException;
+    public java.lang.String[] createSRecords(java.lang.String arg0, java.lang.String[] arg1, java.lang.String[] arg2, java.lang.String[] arg3, java.lang.String[] arg4) throws java.rmi.RemoteException;
+    public java.lang.String getExactRecordCounts(java.lang.String arg0) throws java.rmi.RemoteException;
+    public java.lang.String[] transferRecords(java.lang.String arg0, java.lang.String[] arg1, java.lang.String arg2) throws java.rmi.RemoteException;
+    public java.lang.String[] transferMatchingRecords(java.lang.String arg0, java.lang.String arg1, java.lang.String arg2, java.lang.String arg3) throws java.rmi.RemoteException;
+    public java.lang.String getRebalanceStatus(java.lang.String arg0) throws java.rmi.RemoteException;
+    public java.lang.String getSessionToken(java.lang.String arg0) throws java.rmi.RemoteException;
+    public java.lang.String printRecordsInSession(java.lang.String arg0, java.lang.String arg1, java.lang.String arg2) throws java.rmi.RemoteException;
+    public java.lang.String printAllRecordsInSession(java.lang.String arg0) throws java.rmi.RemoteException;
+    public java.lang.String getRecordCountsInSession(java.lang.String arg0, java.lang.String arg1) throws java.rmi.RemoteException;
+    public java.lang.String findRecord(java.lang.String arg0, java.lang.String arg1) throws java.rmi.RemoteException;
+    public java.lang.String queryCluster(java.lang.String arg0, java.lang.String arg1, java.lang.String arg2, int arg3) throws java.rmi.RemoteException;
+    public java.lang.String printRecordsPageInSession(java.lang.String arg0, int arg1, java.lang.String arg2) throws java.rmi.RemoteException;
 }
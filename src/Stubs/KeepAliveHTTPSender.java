@@ -0,0 +1,77 @@
+package Stubs;
+
+import org.apache.axis.AxisFault;
+import org.apache.axis.Message;
+import org.apache.axis.MessageContext;
+import org.apache.axis.handlers.BasicHandler;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * HTTP transport of the web service stubs, over persistent connections.
+ *
+ * The default Axis sender opens a new socket for every call and closes it with the reply.
+ * This one posts through HttpURLConnection, which keeps the connection to each center open
+ * once the reply has been read to the end, and hands it to the next call to the same center.
+ */
+public class KeepAliveHTTPSender extends BasicHandler {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public void invoke(MessageContext msgContext) throws AxisFault {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(msgContext.getStrProp(MessageContext.TRANS_URL)).openConnection();
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setUseCaches(false);
+            if (msgContext.getTimeout() > 0) {
+                connection.setConnectTimeout(msgContext.getTimeout());
+                connection.setReadTimeout(msgContext.getTimeout());
+            }
+
+            Message request = msgContext.getRequestMessage();
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            request.writeTo(body);
+            String action = msgContext.useSOAPAction() && msgContext.getSOAPActionURI() != null ? msgContext.getSOAPActionURI() : "";
+            connection.setRequestProperty("Content-Type", request.getContentType(msgContext.getSOAPConstants()));
+            connection.setRequestProperty("SOAPAction", "\"" + action + "\"");
+            // Not streamed: the headers and the envelope then leave in a single write, instead of waiting for an ACK in between
+            try (OutputStream out = connection.getOutputStream()) {
+                body.writeTo(out);
+            }
+
+            // A SOAP fault comes back with status 500, its envelope is the reply
+            int status = connection.getResponseCode();
+            InputStream in = status < HttpURLConnection.HTTP_BAD_REQUEST ? connection.getInputStream() : connection.getErrorStream();
+            if (in == null || (status >= HttpURLConnection.HTTP_BAD_REQUEST && status != HttpURLConnection.HTTP_INTERNAL_ERROR))
+                throw new AxisFault("HTTP", "(" + status + ")" + connection.getResponseMessage(), null, null);
+            Message response = new Message(new ByteArrayInputStream(readFully(in)), false, connection.getContentType(), null);
+            response.setMessageType(Message.RESPONSE);
+            msgContext.setResponseMessage(response);
+        } catch (AxisFault e) {
+            throw e;
+        } catch (Exception e) {
+            throw AxisFault.makeFault(e);
+        }
+    }
+
+    /**
+     * Read the reply to the end and close it, so that the connection goes back to the keep-alive cache
+     */
+    private static byte[] readFully(InputStream in) throws IOException {
+        try (InputStream stream = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = stream.read(buffer)) != -1)
+                out.write(buffer, 0, read);
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package Stubs;
+
+import Utils.Config;
+import org.apache.axis.EngineConfiguration;
+import org.apache.axis.EngineConfigurationFactory;
+import org.apache.axis.SimpleTargetedChain;
+import org.apache.axis.configuration.EngineConfigurationFactoryFinder;
+import org.apache.axis.configuration.SimpleProvider;
+import org.apache.axis.transport.http.HTTPTransport;
+
+import javax.xml.rpc.ServiceException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Web service stubs of the centers, created once and reused.
+ *
+ * A locator, with its Axis engine, is created once per center and shared by all of its stubs.
+ * A stub is used by one thread at a time: it is acquired for a call or a session, then released
+ * so that the next thread reuses it, with its registered type mappings, instead of building one.
+ * Calls are sent over persistent HTTP connections, see KeepAliveHTTPSender.
+ * At most Config.IDLE_STUBS_PER_CENTER idle stubs are kept per center, the others are dropped.
+ */
+public class StubPool {
+    private static final EngineConfiguration ENGINE_CONFIGURATION = keepAliveConfiguration();
+
+    private final Map<Config.Server_ID, MTLCenterServerServiceLocator> locators = new ConcurrentHashMap<>();
+    private final Map<Config.Server_ID, Idle> idleStubs = new ConcurrentHashMap<>();
+
+    static {
+        // Connections kept open per center by HttpURLConnection, 5 by default
+        if (System.getProperty("http.maxConnections") == null)
+            System.setProperty("http.maxConnections", Integer.toString(Config.IDLE_STUBS_PER_CENTER));
+    }
+
+    /**
+     * Return an idle stub of the center, or a new one if they are all in use
+     */
+    public CenterServer acquire(Config.Server_ID serverID) throws ServiceException, MalformedURLException {
+        Idle idle = idleStubs.get(serverID);
+        CenterServer stub = idle == null ? null : idle.stubs.poll();
+        if (stub != null) {
+            idle.size.decrementAndGet();
+            return stub;
+        }
+        /**
+         * Every center publishes the same service, at the address given by the cluster configuration
+         */
+        MTLCenterServerServiceLocator locator = locators.computeIfAbsent(serverID, id -> new MTLCenterServerServiceLocator(ENGINE_CONFIGURATION));
+        return locator.getCenterServerPort(new URL(serverID.getWebServiceURL()));
+    }
+
+    /**
+     * Give the stub back once the thread is done with it, it must not be used afterwards
+     * A stub whose call failed can be released as well, it holds no connection
+     */
+    public void release(Config.Server_ID serverID, CenterServer stub) {
+        if (stub == null)
+            return;
+        Idle idle = idleStubs.computeIfAbsent(serverID, id -> new Idle());
+        if (idle.size.incrementAndGet() > Config.IDLE_STUBS_PER_CENTER) {
+            idle.size.decrementAndGet();
+            return;
+        }
+        idle.stubs.add(stub);
+    }
+
+    /**
+     * The default client configuration of Axis, with calls over http sent by KeepAliveHTTPSender
+     */
+    private static EngineConfiguration keepAliveConfiguration() {
+        EngineConfigurationFactory factory = EngineConfigurationFactoryFinder.newFactory();
+        SimpleProvider configuration = new SimpleProvider(factory.getClientEngineConfig());
+        configuration.deployTransport(HTTPTransport.DEFAULT_TRANSPORT_NAME, new SimpleTargetedChain(new KeepAliveHTTPSender()));
+        return configuration;
+    }
+
+    private static final class Idle {
+        private final Queue<CenterServer> stubs = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+    }
+}
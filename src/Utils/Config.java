@@ -1,5 +1,19 @@
 package Utils;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
 /**
  * Created by quocminhvu on 2017-05-26.
  */
@@ -11,11 +25,265 @@ public class Config {
     }
 
     // Records
-    public static final String STUDENT_RECORD_FORMAT = "SR%05d";
-    public static final String TEACHER_RECORD_FORMAT = "TR%05d";
+    public static final String STUDENT_RECORD_PREFIX = "SR";
+    public static final String TEACHER_RECORD_PREFIX = "TR";
+    public static final int RECORD_ID_DIGITS = 5;
+    public static final int RECORD_ID_BLOCK_SIZE = 1000;
 
     // Servers
-    public enum Server_ID {MTL, LVL, DDO}
+    /**
+     * A center of the cluster, or one of the nodes a center is sharded across
+     * There is a single instance per center and per node so they can be compared with ==
+     *
+     * The members are read from the cluster file, which lists the centers in order and gives the address of each one:
+     *   centers=MTL,LVL,DDO,QUE
+     *   QUE.hostname=localhost
+     *   QUE.udpPort=4321
+     *   QUE.tcpPort=4322
+     *   QUE.rmiPort=7890
+     *   QUE.webServiceURL=http://localhost:8888/que
+     * A center too large for one node lists its shards instead, each one addressed like a center.
+     * Records go to the shard whose range holds the initial of their last name,
+     * or by a hash of the last name when the shards have no ranges:
+     *   MTL.webServiceURL=http://localhost:8888/mtl
+     *   MTL.shards=MTL_AM,MTL_NZ
+     *   MTL_AM.initials=A-M
+     *   MTL_AM.hostname=localhost
+     *   ...
+     * The web service URL of a sharded center is the one of its CenterRouter, which forwards each call to the shards.
+     *
+     * A node may also list read replicas, addressed like a node, which follow its changes and serve its reads:
+     *   LVL.replicas=LVL_R1,LVL_R2
+     *
+     * Without a cluster file, the members are the Montreal, Laval and Dollard-des-Ormeaux centers below.
+     * The first node is the coordinator that leases the blocks of record IDs to every node.
+     */
+    public static final class Server_ID {
+        private static final Server_ID[] CENTERS = loadCenters();
+        private static final Server_ID[] NODES;
+        private static final Map<String, Server_ID> MEMBERS_BY_NAME = new LinkedHashMap<>();
+        static {
+            List<Server_ID> nodes = new ArrayList<>();
+            for (Server_ID center : CENTERS) {
+                MEMBERS_BY_NAME.put(center.name, center);
+                for (Server_ID shard : center.shards) {
+                    MEMBERS_BY_NAME.put(shard.name, shard);
+                    nodes.add(shard);
+                    for (Server_ID replica : shard.replicas)
+                        MEMBERS_BY_NAME.put(replica.name, replica);
+                }
+            }
+            NODES = nodes.toArray(new Server_ID[0]);
+        }
+
+        private final String name;
+        private final String hostname;
+        private final int udpPort;
+        private final int tcpPort;
+        private final int rmiPort;
+        private final String webServiceURL;
+        private Server_ID center = this;
+        private Server_ID[] shards = {this};
+        private Server_ID primary;
+        private Server_ID[] replicas = {};
+        private char firstInitial = Character.MIN_VALUE;
+        private char lastInitial = Character.MAX_VALUE;
+
+        private Server_ID(String name, String hostname, int udpPort, int tcpPort, int rmiPort, String webServiceURL) {
+            this.name = name;
+            this.hostname = hostname;
+            this.udpPort = udpPort;
+            this.tcpPort = tcpPort;
+            this.rmiPort = rmiPort;
+            this.webServiceURL = webServiceURL;
+        }
+
+        /**
+         * Every node of the cluster, that is every center and every shard of the sharded ones
+         * Read replicas are not nodes, they only follow their primary
+         */
+        public static Server_ID[] values() {
+            return NODES.clone();
+        }
+
+        public static Server_ID[] centers() {
+            return CENTERS.clone();
+        }
+
+        /**
+         * Throw an IllegalArgumentException if there is no such center or node, like the valueOf of an enum
+         */
+        public static Server_ID valueOf(String name) {
+            if (name == null)
+                throw new NullPointerException("Name is null");
+            Server_ID member = MEMBERS_BY_NAME.get(name);
+            if (member == null)
+                throw new IllegalArgumentException("No center " + name);
+            return member;
+        }
+
+        /**
+         * Center of a manager, whose ID is the name of the center followed by MANAGER_ID_DIGITS digits
+         */
+        public static Server_ID ofManagerID(String managerID) {
+            if (managerID.length() <= MANAGER_ID_DIGITS)
+                throw new IllegalArgumentException("Malformed manager ID " + managerID);
+            return valueOf(managerID.substring(0, managerID.length() - MANAGER_ID_DIGITS)).getCenter();
+        }
+
+        public static Server_ID getIDLeaseCoordinator() {
+            return NODES[0];
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public String getHostname() {
+            return hostname;
+        }
+
+        public int getUdpPort() {
+            return udpPort;
+        }
+
+        public int getTcpPort() {
+            return tcpPort;
+        }
+
+        public int getRmiPort() {
+            return rmiPort;
+        }
+
+        public String getWebServiceURL() {
+            return webServiceURL;
+        }
+
+        /**
+         * Center of the node, a center that is not sharded is its own single node
+         */
+        public Server_ID getCenter() {
+            return primary == null ? center : primary.getCenter();
+        }
+
+        public Server_ID[] getShards() {
+            return shards.clone();
+        }
+
+        public boolean isReplica() {
+            return primary != null;
+        }
+
+        /**
+         * Node whose changes the replica follows
+         */
+        public Server_ID getPrimary() {
+            return primary;
+        }
+
+        public Server_ID[] getReplicas() {
+            return replicas.clone();
+        }
+
+        public boolean isSharded() {
+            return shards.length > 1 || shards[0] != this;
+        }
+
+        /**
+         * Shard of the center that holds the records with this last name
+         */
+        public Server_ID shardOf(String lastName) {
+            if (shards.length == 1)
+                return shards[0];
+            char initial = Character.toUpperCase(lastName.charAt(0));
+            for (Server_ID shard : shards) {
+                if (shard.firstInitial <= initial && initial <= shard.lastInitial)
+                    return shard;
+            }
+            return shards[Math.floorMod(lastName.toUpperCase().hashCode(), shards.length)];
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+
+        private static Server_ID[] loadCenters() {
+            Path clusterFile = Paths.get(System.getProperty(CLUSTER_FILE_PROPERTY, CLUSTER_FILENAME));
+            if (!Files.exists(clusterFile))
+                return new Server_ID[]{
+                        new Server_ID("MTL", MONTREAL_HOSTNAME, MONTREAL_UDP_PORT, MONTREAL_TCP_PORT, MONTREAL_RMI_PORT, MONTREAL_WEB_SERVICE_URL),
+                        new Server_ID("LVL", LAVAL_HOSTNAME, LAVAL_UDP_PORT, LAVAL_TCP_PORT, LAVAL_RMI_PORT, LAVAL_WEB_SERVICE_URL),
+                        new Server_ID("DDO", DOLLARD_DES_ORMEAUX_HOSTNAME, DOLLARD_DES_ORMEAUX_UDP_PORT, DOLLARD_DES_ORMEAUX_TCP_PORT, DOLLARD_DES_ORMEAUX_RMI_PORT, DOLLARD_DES_ORMEAUX_WEB_SERVICE_URL)};
+
+            Properties properties = new Properties();
+            try (InputStream in = Files.newInputStream(clusterFile)) {
+                properties.load(in);
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot read the cluster file " + clusterFile, e);
+            }
+            String[] names = property(properties, "centers").split(",");
+            Server_ID[] centers = new Server_ID[names.length];
+            for (int i = 0; i < names.length; i++) {
+                String name = names[i].trim();
+                String shardNames = properties.getProperty(name + ".shards");
+                if (shardNames == null || shardNames.trim().isEmpty()) {
+                    centers[i] = node(properties, name);
+                    continue;
+                }
+
+                Server_ID center = new Server_ID(name, "", 0, 0, 0, property(properties, name + ".webServiceURL"));
+                String[] shardNamesList = shardNames.split(",");
+                center.shards = new Server_ID[shardNamesList.length];
+                for (int j = 0; j < shardNamesList.length; j++) {
+                    Server_ID shard = node(properties, shardNamesList[j].trim());
+                    shard.center = center;
+                    String initials = properties.getProperty(shard.name + ".initials");
+                    if (initials != null && !initials.trim().isEmpty()) {
+                        String[] range = initials.trim().toUpperCase().split("-");
+                        shard.firstInitial = range[0].charAt(0);
+                        shard.lastInitial = range[range.length - 1].charAt(0);
+                    }
+                    center.shards[j] = shard;
+                }
+                centers[i] = center;
+            }
+            return centers;
+        }
+
+        private static Server_ID node(Properties properties, String name) {
+            Server_ID node = address(properties, name);
+            String replicaNames = properties.getProperty(name + ".replicas");
+            if (replicaNames != null && !replicaNames.trim().isEmpty()) {
+                String[] replicaNamesList = replicaNames.split(",");
+                node.replicas = new Server_ID[replicaNamesList.length];
+                for (int i = 0; i < replicaNamesList.length; i++) {
+                    node.replicas[i] = address(properties, replicaNamesList[i].trim());
+                    node.replicas[i].primary = node;
+                }
+            }
+            return node;
+        }
+
+        private static Server_ID address(Properties properties, String name) {
+            return new Server_ID(name,
+                    property(properties, name + ".hostname"),
+                    Integer.parseInt(property(properties, name + ".udpPort")),
+                    Integer.parseInt(property(properties, name + ".tcpPort")),
+                    Integer.parseInt(property(properties, name + ".rmiPort")),
+                    property(properties, name + ".webServiceURL"));
+        }
+
+        private static String property(Properties properties, String key) {
+            String value = properties.getProperty(key);
+            if (value == null || value.trim().isEmpty())
+                throw new IllegalStateException("Missing " + key + " in the cluster file");
+            return value.trim();
+        }
+    }
+    public static final String CLUSTER_FILENAME = "/Users/quocminhvu/Documents/workspace/IdeaProjects/COMP6231_Assignment02/cluster.properties";
+    public static final String CLUSTER_FILE_PROPERTY = "cluster";
+    public static final int MANAGER_ID_DIGITS = 4;
     public static final String MTL_SERVER_FORMAT = "MTL%04d";
     public static final String LVL_SERVER_FORMAT = "LVL%04d";
     public static final String DDO_SERVER_FORMAT = "DDO%04d";
@@ -25,17 +293,112 @@ public class Config {
     public static final int MONTREAL_UDP_PORT = 1234;
     public static final int LAVAL_UDP_PORT = 2345;
     public static final int DOLLARD_DES_ORMEAUX_UDP_PORT = 3456;
+    public static final int MONTREAL_TCP_PORT = 1235;
+    public static final int LAVAL_TCP_PORT = 2346;
+    public static final int DOLLARD_DES_ORMEAUX_TCP_PORT = 3457;
     public static final int MONTREAL_RMI_PORT = 4567;
     public static final int LAVAL_RMI_PORT = 5678;
     public static final int DOLLARD_DES_ORMEAUX_RMI_PORT = 6789;
+    public static final String MONTREAL_WEB_SERVICE_URL = "http://localhost:8888/mtl";
+    public static final String LAVAL_WEB_SERVICE_URL = "http://localhost:8888/lvl";
+    public static final String DOLLARD_DES_ORMEAUX_WEB_SERVICE_URL = "http://localhost:8888/ddo";
     public static final String FUNC_GET_RECORDS_NUMBER = "getRecordsNumber";
     public static final String FUNC_TRANSFER_TEACHER_RECORD = "transferTRecord";
     public static final String FUNC_TRANSFER_STUDENT_RECORD = "transferSRecord";
     public static final String FUNC_GET_RECORD_ID = "getRecordID";
+    public static final String FUNC_GOSSIP_RECORD_COUNTS = "gossipRecordCounts";
+    public static final String FUNC_TRANSFER_RECORDS = "transferRecords";
+    public static final String FUNC_LEASE_ID_BLOCK = "leaseIDBlock";
+    public static final String FUNC_PULL_CHANGES = "pullChanges";
+    public static final String FUNC_PULL_SNAPSHOT = "pullSnapshot";
+    public static final String FUNC_FIND_RECORD = "findRecord";
+    public static final String FUNC_QUERY_RECORDS = "queryRecords";
+    public static final String FUNC_SHARE_RECORD_FILTER = "shareRecordFilter";
     public static final String DELIMITER = "\\|";
+    public static final int UDP_BUFFER_SIZE = 8192;
+    public static final int UDP_RECEIVE_BUFFER_SIZE = 4 << 20;
+    public static final int UDP_RECEIVERS = 1;
+    public static final int UDP_WORKER_THREADS = 16;
+    public static final int UDP_WORKER_QUEUE_SIZE = 256;
+    /**
+     * UDP: one datagram per message, for the small and frequent requests
+     * TCP: pipelined over pooled long-lived connections, for the requests carrying many records
+     */
+    public enum Transport {UDP, TCP}
+    public static final Set<String> TCP_FUNCTIONS = new HashSet<>(Arrays.asList(FUNC_TRANSFER_RECORDS, FUNC_PULL_CHANGES, FUNC_PULL_SNAPSHOT, FUNC_QUERY_RECORDS, FUNC_SHARE_RECORD_FILTER));
+    public static final int TCP_MAX_FRAME_SIZE = 1 << 20;
+    public static final int TCP_CONNECTIONS_PER_PEER = 2;
+    public static final int TCP_WORKER_THREADS = 8;
+    public static final int TCP_WORKER_QUEUE_SIZE = 64;
+    public static final long RECORD_COUNTS_TIMEOUT_MILLIS = 1000;
+    public static final long PEER_TIMEOUT_MILLIS = 300;
+    public static final int PEER_ATTEMPTS = 3;
+    public static final int PEER_FAILURE_THRESHOLD = 5;
+    public static final long PEER_CIRCUIT_OPEN_MILLIS = 10000;
+    public static final String RECORD_COUNT_UNAVAILABLE = "unavailable";
+    public static final long RECORD_COUNTS_MAX_STALENESS_MILLIS = 5000;
+    public static final long GOSSIP_INTERVAL_MILLIS = 100;
+    public static final long GOSSIP_HEARTBEAT_MILLIS = 1000;
+    public static final int RECORD_FILTER_BITS = 1 << 20;
+    public static final int RECORD_FILTER_HASHES = 4;
+    public static final long RECORD_FILTER_SHARE_MILLIS = 1000;
+    public static final long RECORD_FILTER_HEARTBEAT_MILLIS = 30000;
+    public static final double RECORD_FILTER_REBUILD_RATIO = 0.25;
+    public static final int TRANSFER_CHUNK_SIZE = 64;
+    public static final int TCP_TRANSFER_CHUNK_SIZE = 1024;
+    public static final int TRANSFER_WINDOW = 8;
+    public static final long TRANSFER_RETRY_INTERVAL_MILLIS = 1000;
+    // A chunk is only answered once the receiver has synced it, the wait covers a group commit on a slow disk
+    public static final long TRANSFER_TIMEOUT_MILLIS = 2000;
+    public static final long TRANSFER_EXPIRY_MILLIS = 10 * 60 * 1000;
+    public static final int TRANSFER_DEDUP_SIZE = 1 << 20;
+    public static final boolean REBALANCE_ENABLED = false;
+    public static final long REBALANCE_INTERVAL_MILLIS = 1000;
+    public static final long REBALANCE_RECORDS_PER_SECOND = 2000;
+    public static final int REBALANCE_SLICE_SIZE = 256;
+    public static final double REBALANCE_THRESHOLD = 0.2;
+    public static final long REBALANCE_MIN_RECORDS = 100;
+    public static final String REBALANCE_STATUS = "Rebalancer of %s: %s, target %s, %d records left to move, %d moved in total";
+    public static final int REPLICATION_BACKLOG_SIZE = 1 << 16;
+    public static final int REPLICATION_BATCH_SIZE = 1024;
+    public static final long REPLICATION_POLL_MILLIS = 20;
+    public static final long REPLICATION_TIMEOUT_MILLIS = 2000;
+    public static final long REPLICA_SESSION_WAIT_MILLIS = 200;
+    public static final String REPLICA_BEHIND = "REPLICA_BEHIND";
     public static final String DATE_TIME_FORMAT = "yyyy-MM-dd HH:mm:ss.SSS";
     public static final String PRINT_TEACHER_RECORD = "%s: Name(%s %s) Address(%s) Phone(%s) Specialization(%s) Location(%s)";
     public static final String PRINT_STUDENT_RECORD = "%s: Name(%s %s) CoursesRegistered(%s) Status(%s) StatusDate(%s)";
+    public static final int PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final String PAGE_CURSOR_DELIMITER = "\n";
+    public static final int MAX_QUERY_RESULTS = 1000;
+    public static final long CLUSTER_QUERY_TIMEOUT_MILLIS = 1000;
+    public static final String CLUSTER_RECORD = "%s %s";
+    public static final int MAX_BATCH_SIZE = 5000;
+    public static final long BATCH_WINDOW_MILLIS = 20;
+    public static final int IDLE_STUBS_PER_CENTER = 32;
+    public static final String IMPORT_TEACHER_RECORD = "T";
+    public static final String IMPORT_STUDENT_RECORD = "S";
+
+    // Durability
+    /**
+     * ASYNC: a call returns once its change is logged in memory, the log is synced every WAL_SYNC_INTERVAL_MILLIS
+     * WRITTEN: a call returns once its change is written to the operating system, it survives a crash of the server
+     * SYNCED: a call returns once its change is synced to the disk, it survives a power loss
+     */
+    public enum Durability_Level {ASYNC, WRITTEN, SYNCED}
+    public static final Durability_Level DURABILITY_LEVEL = Durability_Level.SYNCED;
+    public static final String DATA_DIRECTORY = "/Users/quocminhvu/Documents/workspace/IdeaProjects/COMP6231_Assignment02/data";
+    public static final String WAL_FILENAME = "wal_%s_%020d.log";
+    public static final long WAL_SYNC_INTERVAL_MILLIS = 100;
+    public static final int WAL_MAX_ENTRY_SIZE = 1 << 20;
+    public static final String OUTBOX_FILENAME = "outbox_%s.log";
+    public static final String ID_LEASES_FILENAME = "id_leases.bin";
+    public static final long OUTBOX_COMPACT_SIZE = 16 << 20;
+    public static final String SNAPSHOT_FILENAME = "snapshot_%s.bin";
+    public static final int SNAPSHOT_REGION_SIZE = 64 << 20;
+    public static final long SNAPSHOT_INTERVAL_SECONDS = 60;
+    public static final long SNAPSHOT_MIN_LOG_ENTRIES = 10000;
 
     // Logging
     public static final String LOG_SERVER_FILENAME = "/Users/quocminhvu/Documents/workspace/IdeaProjects/COMP6231_Assignment02/log/server_%s.log";
@@ -44,14 +407,48 @@ public class Config {
     public static final String LOG_MODIFIED_RECORD_FAILED = "%s cannot modify %s: FieldName(%s) Value(%s)";
     public static final String LOG_CREATE_TEACHER_RECORD = "%s add %s: Name(%s %s) Add(%s) Phone(%s) Spec(%s) Loc(%s)";
     public static final String LOG_CREATE_STUDENT_RECORD = "%s add %s: Name(%s %s) Courses(%s) Status(%s)";
+    public static final String LOG_CREATE_TEACHER_RECORDS = "%s add %d teacher records: %s..%s";
+    public static final String LOG_CREATE_STUDENT_RECORDS = "%s add %d student records: %s..%s";
+    public static final String LOG_CREATE_RECORDS_FAIL = "%s cannot add a batch of %d records: malformed payload";
     public static final String LOG_TRANSFER_TEACHER_RECORD = "%s transfer %s: Name(%s %s) Add(%s) Phone(%s) Spec(%s) Loc(%s)";
     public static final String LOG_TRANSFER_STUDENT_RECORD = "%s transfer %s: Name(%s %s) Courses(%s) Status(%s) Date(%s)";
     public static final String LOG_TRANSFER_RECORD_SUCCESS = "%s transfer %s to %s";
     public static final String LOG_TRANSFER_RECORD_FAIL = "%s failed to transfer %s to %s";
+    public static final String LOG_TRANSFER_RECORDS = "%s transfer %d of %d records to %s";
+    public static final String LOG_RECEIVE_RECORDS = "%s transfer %d records from %s";
+    public static final String LOG_TRANSFER_RETRIED = "Server %s retried pending transfers: %d of %d done";
+    public static final String LOG_OUTBOX_FAILED = "Transfer outbox of server %s failed: %s";
+    public static final String LOG_TRANSFER_ABORTED = "Server %s aborted transfer %s of record %s to %s: not confirmed in time, the record can be edited and transferred again";
+    public static final String LOG_REPLICA_RESYNC = "Replica %s copies the records of %s from log entry %d";
+    public static final String LOG_REPLICA_CAUGHT_UP = "Replica %s caught up with %s at log entry %d: %d records";
+    public static final String LOG_REPLICA_READ_ONLY = "%s cannot change replica %s, it is read-only";
+    public static final String LOG_SHARD_FAILED = "Shard %s of center %s failed: %s";
+    public static final String LOG_ID_BLOCK_LEASED = "Server %s leased record IDs %d..%d from %s";
+    public static final String LOG_ID_BLOCK_UNAVAILABLE = "Server %s cannot lease record IDs from %s";
+    public static final String LOG_CREATE_RECORD_ID_FAIL = "%s cannot add %d records: no record ID available";
     public static final String LOG_RECORDS_COUNT = "%s get count %s";
     public static final String LOG_PRINT_RECORD = "%s print %s";
+    public static final String LOG_QUERY_RECORDS = "%s query %s = %s: %d records";
+    public static final String LOG_QUERY_RECORDS_FAIL = "%s cannot query unindexed field %s";
+    public static final String LOG_CLUSTER_QUERY = "%s query %s = %s in the cluster: %d records, %d of %d servers answered";
+    public static final String LOG_FIND_RECORD = "%s find %s in the cluster: %s";
+    public static final String LOG_RECORD_FILTER_REBUILT = "%s rebuilt its record filter: %d records, %d removed since the previous one";
+    public static final String LOG_WAL_REPLAYED = "Server %s recovered up to log entry %d: %d records";
+    public static final String LOG_SNAPSHOT_LOADED = "Server %s loaded snapshot at log entry %d: %d records";
+    public static final String LOG_SNAPSHOT_WRITTEN = "Server %s wrote snapshot at log entry %d: %d records in %d ms";
+    public static final String LOG_SNAPSHOT_FAILED = "Server %s snapshot %s failed: %s";
+    public static final String LOG_WAL_FAILED = "Write-ahead log %s failed: %s";
+    public static final String LOG_WAL_NOT_DURABLE = "%s: change of %s could not be made durable";
     public static final String LOG_UDP_SERVER_START = "UDP Server started at port %s";
     public static final String LOG_UDP_SERVER_STOP = "UDP Server at port %s stopped";
+    public static final String LOG_TCP_SERVER_START = "TCP Server started at port %s";
+    public static final String LOG_TCP_SERVER_STOP = "TCP Server at port %s stopped";
+    public static final String LOG_PEER_CIRCUIT_OPEN = "Circuit to server %s is open";
+    public static final String LOG_PEER_CIRCUIT_CLOSED = "Circuit to server %s is closed";
+    public static final String LOG_PEER_MESSAGE_REJECTED = "Message to server %s rejected: %s";
+    public static final String LOG_PEER_REPLY_TOO_LARGE = "Server %s cannot reply to %s: %d bytes, at most %d fit";
+    public static final String LOG_UDP_REPLY_DROPPED = "UDP Server at port %s dropped a reply of %d bytes, larger than a datagram of %d bytes";
+    public static final String LOG_UDP_REUSE_PORT_UNSUPPORTED = "SO_REUSEPORT is not supported, UDP Server at port %s uses a single receiver";
     public static final String LOG_CONNECT_RMI_SUCCESS = "Connect to the %s server at port %s successfully";
 
     // Menu
@@ -71,6 +468,13 @@ public class Config {
                                            "6. Print a record" + System.lineSeparator() +
                                            "7. Print all records" + System.lineSeparator() +
                                            "8. Login to another server" + System.lineSeparator() +
+                                           "9. Find records by field" + System.lineSeparator() +
+                                           "10. Import records from file" + System.lineSeparator() +
+                                           "11. Get exact records count" + System.lineSeparator() +
+                                           "12. Transfer matching records" + System.lineSeparator() +
+                                           "13. Rebalancing status" + System.lineSeparator() +
+                                           "14. Find a record in every center" + System.lineSeparator() +
+                                           "15. Find records by field in every center" + System.lineSeparator() +
                                            "Your choice: ";
 
     public static final String MULTI_THREAD_MENU = System.lineSeparator() +
@@ -80,41 +484,22 @@ public class Config {
                                                     "Your choice: ";
 
     public static int getUDPPortByServerID(Server_ID server_id) {
-        switch (server_id) {
-            case MTL:
-                return MONTREAL_UDP_PORT;
-            case LVL:
-                return LAVAL_UDP_PORT;
-            case DDO:
-                return DOLLARD_DES_ORMEAUX_UDP_PORT;
-            default:
-                return 0;
-        }
+        return server_id.getUdpPort();
+    }
+
+    public static int getTCPPortByServerID(Server_ID server_id) {
+        return server_id.getTcpPort();
+    }
+
+    public static Transport getTransportByFunction(String function) {
+        return TCP_FUNCTIONS.contains(function) ? Transport.TCP : Transport.UDP;
     }
 
     public static int getRMIPortByServerID(Server_ID server_id) {
-        switch (server_id) {
-            case MTL:
-                return MONTREAL_RMI_PORT;
-            case LVL:
-                return LAVAL_RMI_PORT;
-            case DDO:
-                return DOLLARD_DES_ORMEAUX_RMI_PORT;
-            default:
-                return 0;
-        }
+        return server_id.getRmiPort();
     }
 
     public static String getHostnameByServerID(Server_ID server_id) {
-        switch (server_id) {
-            case MTL:
-                return MONTREAL_HOSTNAME;
-            case LVL:
-                return LAVAL_HOSTNAME;
-            case DDO:
-                return DOLLARD_DES_ORMEAUX_HOSTNAME;
-            default:
-                return "Wrong Server ID";
-        }
+        return server_id.getHostname();
     }
 }